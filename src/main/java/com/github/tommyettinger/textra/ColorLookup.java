@@ -20,6 +20,10 @@ package com.github.tommyettinger.textra;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.Colors;
 
+import com.github.tommyettinger.textra.utils.StringInterner;
+
+import java.util.Arrays;
+
 /**
  * Allows looking up an RGBA8888 int color given a String key, returning either the color or 256 if none was found.
  * This is an extension point for games and libraries that may want their own way of looking up colors. This can be
@@ -48,18 +52,39 @@ public interface ColorLookup {
      */
     int getRgba(String key);
 
+    /**
+     * Looks up an RGBA8888 color using the section of {@code text} from {@code start} (inclusive) to {@code end}
+     * (exclusive) as the key, returning 256 if none was found. By default, this creates a String for that section and
+     * calls {@link #getRgba(String)}, but implementations such as {@link CachingColorLookup} can avoid allocating
+     * anything for keys they have already seen. This is what {@link Font} uses when it parses markup.
+     *
+     * @param text  a CharSequence containing the key; should not be null
+     * @param start the first index of the key in text, inclusive
+     * @param end   the last index of the key in text, exclusive
+     * @return an RGBA8888 color; if 256, this can be considered to not know how to look up the given key.
+     */
+    default int getRgba(CharSequence text, int start, int end) {
+        return getRgba(text.subSequence(start, end).toString());
+    }
+
     /**
      * The default ColorLookup, this simply looks up {@code key} in {@link Colors}, returning 256 (fully transparent,
      * extremely dark blue) if no Color exists by that exact name (case-sensitive), or returning the RGBA8888 value
      * of the color otherwise. All color names are {@code ALL_CAPS} in libGDX's Colors collection by default.
+     * <br>
+     * Looking up a section of a CharSequence with {@link #getRgba(CharSequence, int, int)} reuses the same String for
+     * a name it has seen before, so it doesn't allocate once a name has been used. Only the names are remembered, not
+     * the colors, so every lookup still reads the current contents of Colors.
      */
     class GdxColorLookup implements ColorLookup {
         /**
-         * The only way to access a GdxColorLookup. Since this class has no state and exists only to implement an
-         * interface, it is fine that this is static.
+         * The only way to access a GdxColorLookup. Its only state is the table of names it has seen, which is
+         * synchronized, so it is fine that this is static and shared.
          */
         public static final GdxColorLookup INSTANCE = new GdxColorLookup();
 
+        private final StringInterner names = new StringInterner(1024);
+
         private GdxColorLookup() {
         }
 
@@ -68,5 +93,109 @@ public interface ColorLookup {
             Color c = Colors.get(key);
             return c == null ? 256 : Color.rgba8888(c);
         }
+
+        @Override
+        public int getRgba(CharSequence text, int start, int end) {
+            final String key;
+            synchronized (names) {
+                key = names.intern(text, start, end);
+            }
+            return getRgba(key);
+        }
+    }
+
+    /**
+     * Wraps another ColorLookup and remembers the colors it has found, so looking up the same name again only needs to
+     * hash the chars of the name and compare them with the stored key, without allocating a String or calling the
+     * wrapped ColorLookup. Names that weren't found are not remembered, so colors that are added later (such as with
+     * {@link Colors#put(String, Color)}) can still be found. If a color that was already found is changed or removed,
+     * call {@link #clear()} so the change can be seen.
+     * <br>
+     * This isn't used unless you set it as a Font's {@link Font#colorLookup}. A CachingColorLookup is not thread-safe,
+     * so one instance should only be used by Fonts that parse markup on the same thread.
+     */
+    class CachingColorLookup implements ColorLookup {
+        /**
+         * A CachingColorLookup that wraps {@link GdxColorLookup#INSTANCE}, shared by any Fonts that are given it as
+         * their {@link Font#colorLookup}; Fonts don't use it by default. Because it is shared and not thread-safe, it
+         * must only be used from one thread (normally the render thread), and {@link #clear()} must be called after
+         * changing or removing any color in {@link Colors} that may already have been looked up.
+         */
+        public static final CachingColorLookup GDX = new CachingColorLookup(GdxColorLookup.INSTANCE);
+
+        protected final ColorLookup wrapped;
+        protected long[] hashes;
+        protected String[] keys;
+        protected int[] values;
+        protected int size, mask;
+
+        public CachingColorLookup(ColorLookup wrapped) {
+            this.wrapped = wrapped;
+            hashes = new long[64];
+            keys = new String[64];
+            values = new int[64];
+            mask = 63;
+        }
+
+        public ColorLookup getWrapped() {
+            return wrapped;
+        }
+
+        @Override
+        public int getRgba(String key) {
+            return getRgba(key, 0, key.length());
+        }
+
+        @Override
+        public int getRgba(CharSequence text, int start, int end) {
+            final long hash = StringInterner.hash(text, start, end);
+            final int len = end - start;
+            for (int i = (int) (hash >>> 32) & mask; ; i = i + 1 & mask) {
+                final String key = keys[i];
+                if (key == null) break;
+                if (hashes[i] == hash && key.length() == len && StringInterner.matches(key, text, start))
+                    return values[i];
+            }
+            final String key = text.subSequence(start, end).toString();
+            final int rgba = wrapped.getRgba(key);
+            if (rgba != 256) put(hash, key, rgba);
+            return rgba;
+        }
+
+        /**
+         * Forgets all remembered colors, so they will be looked up again from the wrapped ColorLookup.
+         */
+        public void clear() {
+            Arrays.fill(keys, null);
+            size = 0;
+        }
+
+        protected void put(long hash, String key, int rgba) {
+            if (++size > keys.length >>> 1) resize(keys.length << 1);
+            int i = (int) (hash >>> 32) & mask;
+            while (keys[i] != null) i = i + 1 & mask;
+            hashes[i] = hash;
+            keys[i] = key;
+            values[i] = rgba;
+        }
+
+        protected void resize(int newSize) {
+            final long[] oldHashes = hashes;
+            final String[] oldKeys = keys;
+            final int[] oldValues = values;
+            hashes = new long[newSize];
+            keys = new String[newSize];
+            values = new int[newSize];
+            mask = newSize - 1;
+            for (int j = 0; j < oldKeys.length; j++) {
+                if (oldKeys[j] != null) {
+                    int i = (int) (oldHashes[j] >>> 32) & mask;
+                    while (keys[i] != null) i = i + 1 & mask;
+                    hashes[i] = oldHashes[j];
+                    keys[i] = oldKeys[j];
+                    values[i] = oldValues[j];
+                }
+            }
+        }
     }
 }
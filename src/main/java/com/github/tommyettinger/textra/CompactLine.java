@@ -0,0 +1,234 @@
+/*
+ * Copyright (c) 2021-2022 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.tommyettinger.textra;
+
+import com.badlogic.gdx.utils.LongArray;
+import com.badlogic.gdx.utils.Pool;
+
+import java.util.Arrays;
+
+/**
+ * A more memory-efficient alternative to {@link Line} for text that is stored for a long time but drawn rarely. Where
+ * Line keeps a full 64-bit {@code long} per glyph, this keeps a {@code char[]} for the text and stores each run of
+ * glyphs that share the same color, style, scale, and font index only once, as a start index and a {@code long}
+ * attribute mask (the glyph with its low 16 bits cleared). Long paragraphs of same-colored text only need one run.
+ * <br>
+ * The {@link #get(int)} method provides a read-through view that reconstructs the same {@code long} glyph a Line would
+ * have held, so code that reads glyphs one at a time can use this as-is. To draw or measure this with a Font, use
+ * {@link #expandInto(Line)} to fill a (typically pooled) Line, or {@link Font#drawGlyphs(com.badlogic.gdx.graphics.g2d.Batch, CompactLine, float, float, int)},
+ * which does that for you. This is a Poolable class, and you can obtain a CompactLine with
+ * {@code CompactLine.POOL.obtain()}, or just using a constructor.
+ */
+public class CompactLine implements Pool.Poolable {
+
+    public static final Pool<CompactLine> POOL = new Pool<CompactLine>() {
+        @Override
+        protected CompactLine newObject() {
+            return new CompactLine();
+        }
+    };
+
+    /**
+     * The char portion of each glyph; only the first {@link #size} items are valid.
+     */
+    protected char[] chars;
+    /**
+     * The index in {@link #chars} where each run starts; only the first {@link #runCount} items are valid, and the
+     * first run always starts at 0.
+     */
+    protected int[] runStarts;
+    /**
+     * The shared color, style, scale, and font index of each run, with the char bits (the lowest 16) all 0.
+     */
+    protected long[] runAttributes;
+    protected int size, runCount;
+    public float width, height;
+
+    public CompactLine() {
+        this(16);
+    }
+
+    public CompactLine(int capacity) {
+        chars = new char[Math.max(1, capacity)];
+        runStarts = new int[4];
+        runAttributes = new long[4];
+    }
+
+    /**
+     * Creates a CompactLine with the same glyphs, width, and height as the given Line.
+     * @param line a Line to copy; will not be modified
+     */
+    public CompactLine(Line line) {
+        this(line.glyphs.size);
+        set(line);
+    }
+
+    /**
+     * Replaces the contents of this with the glyphs, width, and height of the given Line.
+     * @param line a Line to copy; will not be modified
+     * @return this, for chaining
+     */
+    public CompactLine set(Line line) {
+        clear();
+        addAll(line.glyphs);
+        width = line.width;
+        height = line.height;
+        return this;
+    }
+
+    /**
+     * Appends one glyph, as produced by {@link Font#markupGlyph(char, String)} or stored in {@link Line#glyphs}. If the
+     * glyph's non-char bits match the last run, this only uses one more char of storage.
+     * @param glyph a glyph as a long, with color, style, scale, font index, and char
+     */
+    public void add(long glyph) {
+        final long attributes = glyph & 0xFFFFFFFFFFFF0000L;
+        if (runCount == 0 || runAttributes[runCount - 1] != attributes) {
+            if (runCount == runStarts.length) {
+                runStarts = Arrays.copyOf(runStarts, runCount << 1);
+                runAttributes = Arrays.copyOf(runAttributes, runCount << 1);
+            }
+            runStarts[runCount] = size;
+            runAttributes[runCount++] = attributes;
+        }
+        if (size == chars.length)
+            chars = Arrays.copyOf(chars, size + (size >>> 1) + 8);
+        chars[size++] = (char) glyph;
+    }
+
+    /**
+     * Appends every glyph in the given LongArray, such as {@link Line#glyphs}.
+     * @param glyphs a LongArray of glyphs; will not be modified
+     */
+    public void addAll(LongArray glyphs) {
+        final long[] items = glyphs.items;
+        for (int i = 0, n = glyphs.size; i < n; i++) {
+            add(items[i]);
+        }
+    }
+
+    /**
+     * Gets the glyph at the given index as the same {@code long} a {@link Line} would store.
+     * This takes logarithmic time in the number of runs, which is constant for single-color text.
+     * @param index the index of a glyph; must be at least 0 and less than {@link #size()}
+     * @return the glyph at index, as a long
+     */
+    public long get(int index) {
+        if (index >= size) throw new IndexOutOfBoundsException("index can't be >= size: " + index + " >= " + size);
+        return runAttributes[findRun(index)] | chars[index];
+    }
+
+    /**
+     * Gets only the char portion of the glyph at the given index.
+     * @param index the index of a glyph; must be at least 0 and less than {@link #size()}
+     * @return the char at index
+     */
+    public char getChar(int index) {
+        if (index >= size) throw new IndexOutOfBoundsException("index can't be >= size: " + index + " >= " + size);
+        return chars[index];
+    }
+
+    private int findRun(int index) {
+        int low = 0, high = runCount - 1;
+        while (low < high) {
+            final int mid = low + high + 1 >>> 1;
+            if (runStarts[mid] <= index) low = mid;
+            else high = mid - 1;
+        }
+        return low;
+    }
+
+    /**
+     * Clears the given Line and fills it with the glyphs, width, and height this holds.
+     * Each run is expanded in one pass, without searching.
+     * @param line a Line that will be modified; often obtained from {@link Line#POOL}
+     * @return line, after modifications
+     */
+    public Line expandInto(Line line) {
+        line.modified().glyphs.clear();
+        appendGlyphsTo(line.glyphs);
+        line.width = width;
+        line.height = height;
+        return line;
+    }
+
+    /**
+     * Appends the full {@code long} form of every glyph this holds to the given LongArray.
+     * @param glyphs a LongArray that will be modified
+     * @return glyphs, after modifications
+     */
+    public LongArray appendGlyphsTo(LongArray glyphs) {
+        final long[] items = glyphs.ensureCapacity(size);
+        int g = glyphs.size;
+        for (int r = 0; r < runCount; r++) {
+            final long attributes = runAttributes[r];
+            for (int i = runStarts[r], end = r + 1 < runCount ? runStarts[r + 1] : size; i < end; i++) {
+                items[g++] = attributes | chars[i];
+            }
+        }
+        glyphs.size = g;
+        return glyphs;
+    }
+
+    /**
+     * @return how many glyphs this holds
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return how many runs of glyphs with identical color, style, scale, and font index this holds
+     */
+    public int runCount() {
+        return runCount;
+    }
+
+    public CompactLine size(float width, float height) {
+        this.width = width;
+        this.height = height;
+        return this;
+    }
+
+    /**
+     * Removes all glyphs and runs, but keeps the allocated storage, and does not change the sizes.
+     */
+    public void clear() {
+        size = 0;
+        runCount = 0;
+    }
+
+    /**
+     * Resets the object for reuse. This clears the glyphs and runs, rather than nulling them. The sizes are set to 0.
+     */
+    @Override
+    public void reset() {
+        clear();
+        width = 0;
+        height = 0;
+    }
+
+    public StringBuilder appendTo(StringBuilder sb) {
+        sb.append("(\"").append(chars, 0, size);
+        sb.append("\" w=").append(width).append(" h=").append(height).append(" runs=").append(runCount).append(')');
+        return sb;
+    }
+
+    public String toString() {
+        return appendTo(new StringBuilder(size + 28)).toString();
+    }
+}
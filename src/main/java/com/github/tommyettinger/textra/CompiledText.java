@@ -0,0 +1,284 @@
+/*
+ * Copyright (c) 2021-2022 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.tommyettinger.textra;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * The result of parsing the tokens in a {@link TypingLabel}'s text, stored so it can be loaded again without running
+ * the {@link Parser}. This is meant for games with a lot of scripted dialogue: each line can be compiled once (even
+ * offline, as part of a build step) with {@link #compile(TypingLabel, String)}, saved with {@link #save(FileHandle)}
+ * or {@link #write(DataOutput)}, and later loaded into a TypingLabel with {@link TypingLabel#restart(CompiledText)},
+ * which skips all regex matching and variable replacement.
+ * <br>
+ * This holds the original text, the intermediate text (with tokens removed and replacements applied, but still with
+ * square-bracket markup), and every token in the order the TypingLabel will reach them. Effects are stored by token
+ * name and parameters, and are only created when this is loaded, using the factories registered in
+ * {@link TypingConfig} at that time. Because it doesn't hold any glyphs, this doesn't depend on a particular Font.
+ * Variables, the clear color, and the default token are replaced when this is compiled, so changes to them after
+ * that won't affect this.
+ */
+public class CompiledText {
+    /**
+     * Written at the start of the data produced by {@link #write(DataOutput)}, and checked by {@link #read(DataInput)}.
+     */
+    private static final int FORMAT_VERSION = 1;
+    private static final TokenCategory[] CATEGORIES = TokenCategory.values();
+
+    protected final String originalText;
+    protected final String intermediateText;
+    protected final int tokenCount;
+    protected final String[] tokens;
+    protected final byte[] categories;
+    protected final int[] indices;
+    protected final int[] endIndices;
+    protected final float[] floatValues;
+    protected final String[] stringValues;
+    protected final String[][] params;
+
+    protected CompiledText(String originalText, String intermediateText, int tokenCount) {
+        this.originalText = originalText;
+        this.intermediateText = intermediateText;
+        this.tokenCount = tokenCount;
+        tokens = new String[tokenCount];
+        categories = new byte[tokenCount];
+        indices = new int[tokenCount];
+        endIndices = new int[tokenCount];
+        floatValues = new float[tokenCount];
+        stringValues = new String[tokenCount];
+        params = new String[tokenCount][];
+    }
+
+    /**
+     * Parses the given markup using the settings of the given TypingLabel (its variables, listener, clear color, and
+     * default token), and stores the result. The label is restarted with the markup as its text, so this is best done
+     * with a TypingLabel that is only used for compiling.
+     *
+     * @param label  a TypingLabel to parse with; will be restarted
+     * @param markup text with tokens and markup, as would be given to {@link TypingLabel#restart(String)}
+     * @return a new CompiledText that can be loaded with {@link TypingLabel#restart(CompiledText)}
+     */
+    public static CompiledText compile(TypingLabel label, String markup) {
+        label.restart(markup);
+        return capture(label);
+    }
+
+    /**
+     * Stores the parsed state of a TypingLabel that has just had its tokens parsed, but hasn't progressed yet.
+     */
+    static CompiledText capture(TypingLabel label) {
+        final TokenTimeline timeline = label.timeline;
+        CompiledText compiled = new CompiledText(label.getOriginalText().toString(),
+                label.getIntermediateText().toString(), timeline.size);
+        for (int i = 0; i < timeline.size; i++) {
+            compiled.tokens[i] = timeline.tokens[i];
+            compiled.categories[i] = (byte) timeline.categories[i].ordinal();
+            compiled.indices[i] = timeline.indices[i];
+            compiled.endIndices[i] = timeline.endIndices[i];
+            compiled.floatValues[i] = timeline.floatValues[i];
+            compiled.stringValues[i] = timeline.stringValues[i];
+            compiled.params[i] = timeline.params[i];
+        }
+        return compiled;
+    }
+
+    /**
+     * Fills the given label's token timeline from this, creating (or reusing pooled) effects for any effect tokens.
+     * Any tokens the label had before are removed, and their effects are returned to their pools.
+     */
+    void loadTokens(TypingLabel label) {
+        final TokenTimeline timeline = label.timeline;
+        timeline.clear();
+        timeline.ensureCapacity(tokenCount);
+        for (int i = 0; i < tokenCount; i++) {
+            TokenCategory category = CATEGORIES[categories[i]];
+            EffectFactory factory = null;
+            Effect effect = null;
+            if (category == TokenCategory.EFFECT_START) {
+                factory = TypingConfig.EFFECT_START_TOKENS.get(tokens[i]);
+                if (factory != null) {
+                    effect = TypingConfig.obtainEffect(factory, label, params[i] == null ? new String[0] : params[i]);
+                }
+            } else if (category == TokenCategory.EFFECT_END) {
+                factory = TypingConfig.EFFECT_END_TOKENS.get(tokens[i]);
+            }
+            timeline.add(tokens[i], category, indices[i], endIndices[i], floatValues[i], stringValues[i], params[i],
+                    effect, factory);
+        }
+    }
+
+    /**
+     * @return the text this was compiled from, with tokens unchanged
+     */
+    public String getOriginalText() {
+        return originalText;
+    }
+
+    /**
+     * @return the text with tokens removed, but still with square-bracket markup
+     */
+    public String getIntermediateText() {
+        return intermediateText;
+    }
+
+    /**
+     * @return how many tokens were found when this was compiled
+     */
+    public int getTokenCount() {
+        return tokenCount;
+    }
+
+    /**
+     * Writes this in a compact binary form that {@link #read(DataInput)} can load.
+     *
+     * @param out a DataOutput, such as a {@link DataOutputStream}
+     * @throws IOException if out throws one
+     */
+    public void write(DataOutput out) throws IOException {
+        out.writeInt(FORMAT_VERSION);
+        writeString(out, originalText);
+        writeString(out, intermediateText);
+        out.writeInt(tokenCount);
+        for (int i = 0; i < tokenCount; i++) {
+            writeString(out, tokens[i]);
+            out.writeByte(categories[i]);
+            out.writeInt(indices[i]);
+            out.writeInt(endIndices[i]);
+            out.writeFloat(floatValues[i]);
+            writeString(out, stringValues[i]);
+            final String[] ps = params[i];
+            if (ps == null) {
+                out.writeInt(-1);
+            } else {
+                out.writeInt(ps.length);
+                for (String p : ps) {
+                    writeString(out, p);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads a CompiledText written by {@link #write(DataOutput)}.
+     *
+     * @param in a DataInput, such as a {@link DataInputStream}
+     * @return a new CompiledText
+     * @throws IOException if in throws one
+     * @throws IllegalStateException if the data was not written by a compatible version of {@link #write(DataOutput)}
+     */
+    public static CompiledText read(DataInput in) throws IOException {
+        final int version = in.readInt();
+        if (version != FORMAT_VERSION)
+            throw new IllegalStateException("Unsupported CompiledText format version: " + version);
+        final String originalText = readString(in);
+        final String intermediateText = readString(in);
+        final int tokenCount = in.readInt();
+        CompiledText compiled = new CompiledText(originalText, intermediateText, tokenCount);
+        for (int i = 0; i < tokenCount; i++) {
+            compiled.tokens[i] = readString(in);
+            final byte category = in.readByte();
+            if (category < 0 || category >= CATEGORIES.length)
+                throw new IllegalStateException("Unknown token category in CompiledText: " + category);
+            compiled.categories[i] = category;
+            compiled.indices[i] = in.readInt();
+            compiled.endIndices[i] = in.readInt();
+            compiled.floatValues[i] = in.readFloat();
+            compiled.stringValues[i] = readString(in);
+            final int paramCount = in.readInt();
+            if (paramCount >= 0) {
+                final String[] ps = new String[paramCount];
+                for (int p = 0; p < paramCount; p++) {
+                    ps[p] = readString(in);
+                }
+                compiled.params[i] = ps;
+            }
+        }
+        return compiled;
+    }
+
+    /**
+     * Writes this to the given file, replacing its contents, as by {@link #write(DataOutput)}.
+     *
+     * @param file a writable FileHandle
+     * @throws GdxRuntimeException if the file can't be written
+     */
+    public void save(FileHandle file) {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file.write(false)));
+        try {
+            write(out);
+            out.flush();
+        } catch (IOException e) {
+            throw new GdxRuntimeException("Error writing CompiledText to file: " + file, e);
+        } finally {
+            try {
+                out.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    /**
+     * Reads a CompiledText from the given file, as by {@link #read(DataInput)}.
+     *
+     * @param file a readable FileHandle, typically written by {@link #save(FileHandle)}
+     * @return a new CompiledText
+     * @throws GdxRuntimeException if the file can't be read
+     */
+    public static CompiledText load(FileHandle file) {
+        DataInputStream in = new DataInputStream(file.read(4096));
+        try {
+            return read(in);
+        } catch (IOException e) {
+            throw new GdxRuntimeException("Error reading CompiledText from file: " + file, e);
+        } finally {
+            try {
+                in.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private static void writeString(DataOutput out, String s) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+            return;
+        }
+        final int len = s.length();
+        out.writeInt(len);
+        for (int i = 0; i < len; i++) {
+            out.writeChar(s.charAt(i));
+        }
+    }
+
+    private static String readString(DataInput in) throws IOException {
+        final int len = in.readInt();
+        if (len < 0) return null;
+        final char[] chars = new char[len];
+        for (int i = 0; i < len; i++) {
+            chars[i] = in.readChar();
+        }
+        return String.valueOf(chars);
+    }
+}
@@ -18,26 +18,102 @@ package com.github.tommyettinger.textra;
 
 import com.badlogic.gdx.math.Interpolation;
 import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.utils.Pool;
 
 /**
- * Abstract text effect.
+ * Abstract text effect. Effects are Poolable; if an Effect's factory was registered as poolable with
+ * {@link TypingConfig#registerEffect(String, String, EffectFactory, boolean)}, then when a TypingLabel is done with the
+ * Effect, it gives it back to a pool in {@link TypingConfig}, and a later token can reuse it with
+ * {@link #init(TypingLabel, String[])}. Subclasses that should be poolable must read their parameters in
+ * {@link #assignParameters(String[])} and put every field back to its default in {@link #reset()}.
  */
-public abstract class Effect {
+public abstract class Effect implements Pool.Poolable {
     private static final float FADEOUT_SPLIT = 0.25f;
-    protected final TypingLabel label;
+    protected TypingLabel label;
     public int indexStart = -1;
     public int indexEnd = -1;
     public float duration = Float.POSITIVE_INFINITY;
     protected float totalTime;
+    /**
+     * The factory registered in {@link TypingConfig} that created this Effect; used to find which active effects an
+     * end token should end. This is assigned when the Effect's start token is parsed.
+     */
+    EffectFactory factory;
+    /**
+     * The memoization Channel returned by {@link #channel(float, float, float, float)}, kept until this is reset.
+     */
+    private TypingEffectsSystem.Channel channel;
 
     public Effect(TypingLabel label) {
         this.label = label;
     }
 
+    /**
+     * Prepares this Effect (typically one that was reset and pooled) to be used again by the given label, with the
+     * given token parameters.
+     *
+     * @param label  the TypingLabel this Effect will be applied to
+     * @param params the parameters given to the start token; may be empty but never null
+     * @return this, for chaining
+     */
+    public Effect init(TypingLabel label, String[] params) {
+        this.label = label;
+        assignParameters(params);
+        return this;
+    }
+
+    /**
+     * Reads the parameters given to this Effect's start token. This is called by constructors of effects that take
+     * parameters, and by {@link #init(TypingLabel, String[])} when a pooled Effect is reused. Does nothing by default.
+     *
+     * @param params the parameters given to the start token; may be empty but never null
+     */
+    protected void assignParameters(String[] params) {
+    }
+
+    /**
+     * Clears the label and puts the indices, duration, and time back to their defaults, so this can be pooled.
+     * Subclasses should call {@code super.reset()} and then put their own fields back to their defaults.
+     */
+    @Override
+    public void reset() {
+        label = null;
+        indexStart = -1;
+        indexEnd = -1;
+        duration = Float.POSITIVE_INFINITY;
+        totalTime = 0f;
+        channel = null;
+    }
+
     public void update(float delta) {
         totalTime += delta;
     }
 
+    /**
+     * Gets the time that periodic effects should use to calculate their progress. This is the shared clock of the
+     * label's {@link TypingEffectsSystem} if it has one, so that effects in different labels stay in phase and can
+     * share memoized values, or this effect's own {@link #totalTime} otherwise.
+     */
+    protected float clock() {
+        TypingEffectsSystem system = label == null ? null : label.effectsSystem;
+        return system == null ? totalTime : system.time;
+    }
+
+    /**
+     * If the label is updated by a {@link TypingEffectsSystem}, gets the Channel that this kind of effect with these
+     * parameters can use to share values with other labels during the same frame; otherwise returns null. Effects that
+     * use this must only depend on {@link #clock()}, the parameters given here, and the local index of a glyph.
+     * The Channel is looked up once and kept until this Effect is reset, so the parameters must not change.
+     *
+     * @return a Channel to memoize values in, or null if this effect's label isn't in a TypingEffectsSystem
+     */
+    protected TypingEffectsSystem.Channel channel(float a, float b, float c, float d) {
+        TypingEffectsSystem system = label == null ? null : label.effectsSystem;
+        if (system == null) return null;
+        if (channel == null || channel.system != system) channel = system.channel(getClass(), a, b, c, d);
+        return channel;
+    }
+
     /**
      * Applies the effect to the given glyph.
      */
@@ -94,7 +170,14 @@ public abstract class Effect {
      * Calculates a linear progress dividing the total time by the given modifier. Returns a value between 0 and 1.
      */
     protected float calculateProgress(float modifier, float offset, boolean pingpong) {
-        float progress = totalTime / modifier + offset;
+        return calculateProgressAt(totalTime, modifier, offset, pingpong);
+    }
+
+    /**
+     * Calculates a linear progress dividing the given time by the given modifier. Returns a value between 0 and 1.
+     */
+    protected float calculateProgressAt(float time, float modifier, float offset, boolean pingpong) {
+        float progress = time / modifier + offset;
         while (progress < 0.0f) {
             progress += 2.0f;
         }
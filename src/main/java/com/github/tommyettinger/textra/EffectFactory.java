@@ -0,0 +1,36 @@
+/*
+ * Copyright (c) 2021-2022 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.tommyettinger.textra;
+
+/**
+ * Creates an {@link Effect} for a TypingLabel when its start token is parsed, given the parameters from that token.
+ * This is registered with {@link TypingConfig#registerEffect(String, String, EffectFactory)}, and avoids the
+ * reflection that registering an Effect class requires, which also makes it work on platforms with limited or no
+ * reflection. This can be treated as a functional interface in Java 8 and higher; typically, a constructor reference
+ * like {@code WaveEffect::new} is all you need.
+ */
+@FunctionalInterface
+public interface EffectFactory {
+    /**
+     * Creates a new Effect that will affect the given label, configured by the given params.
+     *
+     * @param label  the TypingLabel the Effect will be applied to
+     * @param params the parameters given to the start token, split on {@code ';'}; may be empty but never null
+     * @return a new Effect
+     */
+    Effect create(TypingLabel label, String[] params);
+}
@@ -28,17 +28,22 @@ import com.badlogic.gdx.utils.Align;
 import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.CharArray;
 import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.FloatArray;
+import com.badlogic.gdx.utils.IntArray;
 import com.badlogic.gdx.utils.IntIntMap;
 import com.badlogic.gdx.utils.IntMap;
 import com.badlogic.gdx.utils.JsonReader;
 import com.badlogic.gdx.utils.JsonValue;
 import com.badlogic.gdx.utils.LongArray;
 import com.badlogic.gdx.utils.NumberUtils;
+import com.badlogic.gdx.utils.ObjectFloatMap;
 import com.badlogic.gdx.utils.ObjectIntMap;
 import com.badlogic.gdx.utils.OrderedMap;
 import com.badlogic.gdx.utils.Pool;
+import com.badlogic.gdx.utils.TimeUtils;
 import com.github.tommyettinger.textra.utils.BlockUtils;
 import com.github.tommyettinger.textra.utils.ColorUtils;
+import com.github.tommyettinger.textra.utils.StringInterner;
 import regexodus.Category;
 
 import java.util.Arrays;
@@ -110,6 +115,12 @@ public class Font implements Disposable {
          */
         public float xAdvance;
 
+        /**
+         * Changed whenever this is changed in a way that Fonts can't notice on their own; each Font's quad template for
+         * this is calculated again when this differs from the version it was calculated for.
+         */
+        int templateVersion;
+
         /**
          * Creates a GlyphRegion from a parent TextureRegion (typically from an atlas). The resulting GlyphRegion will
          * have 0 offsetX, 0 offsetY, and xAdvance equal to {@link TextureRegion#getRegionWidth()}.
@@ -176,6 +187,15 @@ public class Font implements Disposable {
             xAdvance = other.xAdvance;
         }
 
+        /**
+         * Makes every Font forget its precomputed quad for this, so it will be calculated again the next time this is
+         * drawn. This only needs to be called if {@link #offsetX}, {@link #offsetY}, {@link #xAdvance}, or the region
+         * size are changed after this has been drawn; changes to a Font's scale are noticed automatically.
+         */
+        public void clearTemplate() {
+            templateVersion++;
+        }
+
         /**
          * Flips the region, adjusting the offset so the image appears to be flipped as if no whitespace has been
          * removed for packing.
@@ -191,27 +211,95 @@ public class Font implements Disposable {
                 xAdvance = -xAdvance;
             }
             if (y) offsetY = -offsetY;
+            templateVersion++;
+        }
+    }
+
+    /**
+     * The quad template for one char of one Font: the scale that char is drawn at, then the left offset, width,
+     * height, distance from the top of the quad to the baseline, and x advance, all multiplied by that scale. These are
+     * for a glyph with the default size (100%), and are multiplied by a glyph's size when it is drawn. Along with those,
+     * this stores the GlyphRegion and Font metrics it was calculated from, so it can tell when it is out of date.
+     */
+    static final class QuadTemplate {
+        GlyphRegion region;
+        int version;
+        float fontScaleX, fontScaleY, fontCellHeight;
+        float scaleX, scaleY, x, width, height, top, advance;
+
+        /**
+         * @return true if this was calculated for region as it is now, and for font at its current scale
+         */
+        boolean matches(Font font, GlyphRegion region) {
+            return this.region == region && version == region.templateVersion && fontScaleX == font.scaleX
+                    && fontScaleY == font.scaleY && fontCellHeight == font.cellHeight;
+        }
+
+        /**
+         * Calculates this template for drawing region with font at its current scale.
+         *
+         * @param font   the Font that will draw region
+         * @param region the GlyphRegion font uses for c
+         * @param c      the char this is drawn for; chars in the private use area are scaled to fit the line height
+         */
+        void update(Font font, GlyphRegion region, char c) {
+            this.region = region;
+            version = region.templateVersion;
+            fontScaleX = font.scaleX;
+            fontScaleY = font.scaleY;
+            fontCellHeight = font.cellHeight;
+            if (c >= 0xE000 && c < 0xF800) {
+                scaleX = scaleY = font.cellHeight / (region.xAdvance * 1.25f);
+            } else {
+                scaleX = font.scaleX;
+                scaleY = font.scaleY;
+            }
+            x = region.offsetX * scaleX;
+            width = region.getRegionWidth() * scaleX;
+            height = region.getRegionHeight() * scaleY;
+            top = (region.getRegionHeight() + region.offsetY) * scaleY;
+            advance = region.xAdvance * scaleX;
         }
     }
 
     /**
-     * Holds up to 16 Font values, accessible by index or by name, that markup can switch between while rendering.
+     * Holds up to 64 Font values, accessible by index or by name, that markup can switch between while rendering.
      * This uses the [@Name] syntax. It is suggested that multiple Font objects share the same FontFamily so users can
      * have the same names mean the same fonts reliably.
+     * <br>
+     * The index of a Font in this is stored in each glyph, split across the bits in {@link Font#FONT_INDEX_MASK}; use
+     * {@link Font#fontIndex(long)} and {@link Font#withFontIndex(long, int)} to read and change it. Names are looked up
+     * in a table keyed by sections of CharSequences, so {@link #getIndex(CharSequence, int, int, int)} never allocates.
      */
     public static class FontFamily {
         /**
-         * Stores this Font and up to 15 other connected Fonts that can be switched between using [@Name] syntax.
+         * Stores this Font and up to 63 other connected Fonts that can be switched between using [@Name] syntax.
          * If an item is null and this tries to switch to it, the font does not change.
          */
-        public final Font[] connected = new Font[16];
+        public final Font[] connected = new Font[64];
 
         /**
-         * Stores the names of Fonts (or aliases for those Fonts) as keys, mapped to ints between 0 and 15 inclusive.
+         * Stores the names of Fonts (or aliases for those Fonts) as keys, mapped to ints between 0 and 63 inclusive.
          * The int values that this map keeps are stored in long glyphs and looked up as indices in {@link #connected}.
+         * Prefer {@link #putAlias(String, int)} and {@link #removeAlias(String)} to change this. If you change this map
+         * directly, call {@link #rebuildAliases()} afterwards; only a change in its size is noticed without that, so
+         * giving an existing alias a different index, or removing one alias and adding another, would otherwise go
+         * unnoticed by {@link #getIndex(CharSequence, int, int, int)}.
          */
         public final ObjectIntMap<String> fontAliases = new ObjectIntMap<>(48);
 
+        /**
+         * An open-addressing table with the same contents as {@link #fontAliases}, keyed by the
+         * {@link StringInterner#hash(CharSequence, int, int)} of each alias, so names can be looked up directly from
+         * markup without making a String. This is rebuilt from fontAliases when aliasSize is -1, which
+         * {@link #putAlias(String, int)} and {@link #removeAlias(String)} set, or doesn't match the size of fontAliases.
+         */
+        private long[] aliasHashes = new long[64];
+        private String[] aliasKeys = new String[64];
+        private int[] aliasIndices = new int[64];
+        private int aliasMask = 63;
+        private int aliasSize = -1;
+
         /**
          * Creates a FontFamily that only allows staying on the same font, unless later configured otherwise.
          */
@@ -221,8 +309,8 @@ public class Font implements Disposable {
         /**
          * Creates a FontFamily given an array of Font values, using the {@link Font#name} of each Font as its alias.
          * This allows switching to different fonts using the [@Name] syntax. This also registers aliases for the
-         * Strings "0" through up to "15" to refer to the Font values with the same indices (it can register fewer
-         * aliases than up to "15" if there are fewer than 16 Fonts). You should avoid using more than 16 fonts here.
+         * Strings "0" through up to "63" to refer to the Font values with the same indices (it can register fewer
+         * aliases than up to "63" if there are fewer than 64 Fonts). You should avoid using more than 64 fonts here.
          *
          * @param fonts a non-null array of Font values that should each have their name set (as by {@link #setName(String)}
          */
@@ -234,10 +322,10 @@ public class Font implements Disposable {
          * Creates a FontFamily given an array of Font values that and offset/length values for those arrays (allowing
          * {@link Array} to sometimes be used to get the items for fonts). This uses the {@link Font#name} of each Font
          * as its alias. This allows switching to different fonts using the [@Name] syntax. This registers aliases for
-         * the Strings "0" through up to "15" to refer to the Font values with the same indices (it can register fewer
-         * aliases than up to "15" if there are fewer than 16 Fonts). You should avoid using more than 16 fonts here.
+         * the Strings "0" through up to "63" to refer to the Font values with the same indices (it can register fewer
+         * aliases than up to "63" if there are fewer than 64 Fonts). You should avoid using more than 64 fonts here.
          *
-         * @param fonts  an array of Font values that should have the same length as aliases (no more than 16)
+         * @param fonts  an array of Font values that should have the same length as aliases (no more than 64)
          * @param offset where to start accessing fonts, as a non-negative index
          * @param length how many items to use from fonts, if that many are provided
          */
@@ -245,23 +333,22 @@ public class Font implements Disposable {
             if (fonts == null || fonts.length == 0) return;
             for (int i = offset, a = 0; i < length && i < fonts.length; i++, a++) {
                 if (fonts[i] == null) continue;
-                connected[a & 15] = fonts[i];
+                connected[a & 63] = fonts[i];
                 if (fonts[i].name != null)
-                    fontAliases.put(fonts[i].name, a & 15);
-                fontAliases.put(String.valueOf(a & 15), a & 15);
+                    putAlias(fonts[i].name, a & 63);
+                putAlias(String.valueOf(a & 63), a & 63);
             }
         }
 
         /**
          * Creates a FontFamily given an array of String names and a (almost-always same-sized) array of Font values
          * that those names will refer to. This allows switching to different fonts using the [@Name] syntax. This
-         * registers aliases for the Strings "0" through up to "15" to refer to the Font values with the same indices
-         * (it can register fewer aliases than up to "15" if there are fewer than 16 Fonts). It also registers the
-         * {@link Font#name} of each Font as an alias. You should avoid using more than 16 fonts here. You should avoid
-         * using more than 16 fonts with this.
+         * registers aliases for the Strings "0" through up to "63" to refer to the Font values with the same indices
+         * (it can register fewer aliases than up to "63" if there are fewer than 64 Fonts). It also registers the
+         * {@link Font#name} of each Font as an alias. You should avoid using more than 64 fonts here.
          *
-         * @param aliases a non-null array of up to 16 String names to use for fonts (individual items may be null)
-         * @param fonts   a non-null array of Font values that should have the same length as aliases (no more than 16)
+         * @param aliases a non-null array of up to 64 String names to use for fonts (individual items may be null)
+         * @param fonts   a non-null array of Font values that should have the same length as aliases (no more than 64)
          */
         public FontFamily(String[] aliases, Font[] fonts) {
             this(aliases, fonts, 0, Math.min(aliases.length, fonts.length));
@@ -271,12 +358,12 @@ public class Font implements Disposable {
          * Creates a FontFamily given an array of String names, a (almost-always same-sized) array of Font values that
          * those names will refer to, and offset/length values for those arrays (allowing {@link Array} to sometimes be
          * used to get the items for aliases and fonts). This allows switching to different fonts using the [@Name]
-         * syntax. This registers aliases for the Strings "0" through up to "15" to refer to the Font values with the
-         * same indices (it can register fewer aliases than up to "15" if there are fewer than 16 Fonts). It also
-         * registers the {@link Font#name} of each Font as an alias. You should avoid using more than 16 fonts here.
+         * syntax. This registers aliases for the Strings "0" through up to "63" to refer to the Font values with the
+         * same indices (it can register fewer aliases than up to "63" if there are fewer than 64 Fonts). It also
+         * registers the {@link Font#name} of each Font as an alias. You should avoid using more than 64 fonts here.
          *
-         * @param aliases an array of up to 16 String names to use for fonts (individual items may be null)
-         * @param fonts   an array of Font values that should have the same length as aliases (no more than 16)
+         * @param aliases an array of up to 64 String names to use for fonts (individual items may be null)
+         * @param fonts   an array of Font values that should have the same length as aliases (no more than 64)
          * @param offset  where to start accessing aliases and fonts, as a non-negative index
          * @param length  how many items to use from aliases and fonts, if that many are provided
          */
@@ -284,30 +371,30 @@ public class Font implements Disposable {
             if (aliases == null || fonts == null || (aliases.length & fonts.length) == 0) return;
             for (int i = offset, a = 0; i < length && i < aliases.length && i < fonts.length; i++, a++) {
                 if (fonts[i] == null) continue;
-                connected[a & 15] = fonts[i];
-                fontAliases.put(aliases[i], a & 15);
+                connected[a & 63] = fonts[i];
+                putAlias(aliases[i], a & 63);
                 if (fonts[i].name != null)
-                    fontAliases.put(fonts[i].name, a & 15);
-                fontAliases.put(String.valueOf(a & 15), a & 15);
+                    putAlias(fonts[i].name, a & 63);
+                putAlias(String.valueOf(a & 63), a & 63);
             }
         }
 
         /**
          * Constructs a FontFamily given an OrderedMap of String keys (names of Fonts) to Font values (the Fonts that
-         * can be switched between). This registers the Strings "0" up to "15" to be aliases for the Fonts with those
+         * can be switched between). This registers the Strings "0" up to "63" to be aliases for the Fonts with those
          * indices in the map. It also registers the {@link Font#name} of each Font as an alias. This only uses up to
-         * the first 16 keys of map.
+         * the first 64 keys of map.
          *
          * @param map an OrderedMap of String keys to Font values
          */
         public FontFamily(OrderedMap<String, Font> map) {
             Array<String> ks = map.orderedKeys();
-            for (int i = 0; i < map.size && i < 16; i++) {
+            for (int i = 0; i < map.size && i < connected.length; i++) {
                 String name = ks.get(i);
                 if ((connected[i] = map.get(name)) == null) continue;
-                fontAliases.put(name, i);
-                fontAliases.put(connected[i].name, i);
-                fontAliases.put(String.valueOf(i), i);
+                putAlias(name, i);
+                putAlias(connected[i].name, i);
+                putAlias(String.valueOf(i), i);
             }
         }
 
@@ -318,8 +405,40 @@ public class Font implements Disposable {
          * @param other another, non-null, FontFamily to copy into this.
          */
         public FontFamily(FontFamily other) {
-            System.arraycopy(other.connected, 0, connected, 0, 16);
+            System.arraycopy(other.connected, 0, connected, 0, connected.length);
             fontAliases.putAll(other.fontAliases);
+            aliasSize = -1;
+        }
+
+        /**
+         * Makes {@code alias} refer to the Font at {@code index} in {@link #connected}, replacing any index it had
+         * before, and marks the lookup table used by {@link #getIndex(CharSequence, int, int, int)} as needing to be
+         * rebuilt. Null aliases are ignored.
+         *
+         * @param alias a name for a Font, such as "Gentium" or "2"
+         * @param index the index of the Font in connected, from 0 to 63 inclusive
+         * @return this, for chaining
+         */
+        public FontFamily putAlias(String alias, int index) {
+            if (alias != null) {
+                fontAliases.put(alias, index & 63);
+                aliasSize = -1;
+            }
+            return this;
+        }
+
+        /**
+         * Removes {@code alias}, so it no longer refers to any Font, and marks the lookup table used by
+         * {@link #getIndex(CharSequence, int, int, int)} as needing to be rebuilt.
+         *
+         * @param alias a name for a Font that was registered with this FontFamily
+         * @return the index alias referred to, or -1 if it wasn't registered
+         */
+        public int removeAlias(String alias) {
+            if (alias == null) return -1;
+            final int index = fontAliases.remove(alias, -1);
+            if (index != -1) aliasSize = -1;
+            return index;
         }
 
         /**
@@ -330,7 +449,63 @@ public class Font implements Disposable {
          */
         public Font get(String name) {
             if (name == null) return null;
-            return connected[fontAliases.get(name, 0) & 15];
+            return connected[fontAliases.get(name, 0) & 63];
+        }
+
+        /**
+         * Gets the index in {@link #connected} for the name/alias found in {@code text} from {@code start} (inclusive)
+         * to {@code end} (exclusive), or {@code defaultIndex} if it was not found. This doesn't allocate a new String
+         * for names it has seen before, so it is preferred during markup parsing.
+         *
+         * @param text         a CharSequence containing a name or alias for a font, such as "Gentium" or "2"
+         * @param start        the first index of the name in text, inclusive
+         * @param end          the last index of the name in text, exclusive
+         * @param defaultIndex returned if the name was not found
+         * @return the index of the Font with the given name in {@link #connected}, or defaultIndex if not found
+         */
+        public int getIndex(CharSequence text, int start, int end, int defaultIndex) {
+            if (text == null) return defaultIndex;
+            if (start < 0) start = 0;
+            if (end < 0 || end > text.length()) end = text.length();
+            if (start > end) start = end;
+            if (aliasSize != fontAliases.size) rebuildAliases();
+            final long hash = StringInterner.hash(text, start, end);
+            final int len = end - start;
+            for (int i = (int) (hash >>> 32) & aliasMask; ; i = i + 1 & aliasMask) {
+                final String key = aliasKeys[i];
+                if (key == null) return defaultIndex;
+                if (aliasHashes[i] == hash && key.length() == len && StringInterner.matches(key, text, start))
+                    return aliasIndices[i];
+            }
+        }
+
+        /**
+         * Refills the table {@link #getIndex(CharSequence, int, int, int)} uses from {@link #fontAliases}. This is done
+         * automatically after {@link #putAlias(String, int)} or {@link #removeAlias(String)}, and when fontAliases
+         * changes size, but must be called after modifying fontAliases directly in a way that keeps its size the same,
+         * such as giving an existing alias a different index, or removing one alias and adding another.
+         */
+        public void rebuildAliases() {
+            int capacity = 64;
+            while (capacity < fontAliases.size << 1) capacity <<= 1;
+            if (capacity != aliasKeys.length) {
+                aliasHashes = new long[capacity];
+                aliasKeys = new String[capacity];
+                aliasIndices = new int[capacity];
+                aliasMask = capacity - 1;
+            } else {
+                Arrays.fill(aliasKeys, null);
+            }
+            for (ObjectIntMap.Entry<String> e : fontAliases) {
+                if (e.key == null) continue;
+                final long hash = StringInterner.hash(e.key, 0, e.key.length());
+                int i = (int) (hash >>> 32) & aliasMask;
+                while (aliasKeys[i] != null) i = i + 1 & aliasMask;
+                aliasHashes[i] = hash;
+                aliasKeys[i] = e.key;
+                aliasIndices[i] = e.value;
+            }
+            aliasSize = fontAliases.size;
         }
 
     }
@@ -378,6 +553,12 @@ public class Font implements Disposable {
      * {@link #addAtlas(TextureAtlas)}.
      */
     public ObjectIntMap<String> nameLookup;
+    /**
+     * Gets the Strings used to look up names from {@code [+name]} markup in {@link #nameLookup}, so the same name
+     * doesn't need a new String each time it is parsed. This belongs to this Font, like the rest of the state used by
+     * markup, and is only created once markup uses a {@code [+name]} tag.
+     */
+    private StringInterner nameInterner;
     /**
      * Which GlyphRegion to display if a char isn't found in {@link #mapping}. May be null to show a space by default.
      */
@@ -387,6 +568,14 @@ public class Font implements Disposable {
      * drawn from a TextureAtlas that the font shares with other images.
      */
     public Array<TextureRegion> parents;
+    /**
+     * If true, Fonts constructed while this is true load each page image in their font files as a {@link PageTexture},
+     * which reads only the size of the image when the Font is created, and decodes and uploads the image the first time
+     * a glyph on that page is drawn. This makes loading many Fonts (or fonts with many pages) much faster, at the cost
+     * of a short delay the first time each page is used; {@link PageTexture#prepare()} can decode a page ahead of time.
+     * Only PNG page images can be deferred; others are still loaded immediately. This is false by default.
+     */
+    public static boolean DEFER_PAGE_LOADING = false;
     /**
      * A {@link DistanceFieldType} that should be {@link DistanceFieldType#STANDARD} for most fonts, and can be
      * {@link DistanceFieldType#SDF} or {@link DistanceFieldType#MSDF} if you know you have a font made to be used with
@@ -408,6 +597,14 @@ public class Font implements Disposable {
      * it, which applies to the x-position of the later char.
      */
     public IntIntMap kerning;
+    /**
+     * True if {@link #mapping} and {@link #nameLookup} may be shared with another Font made by {@link #Font(Font)}.
+     */
+    private boolean sharedGlyphs = false;
+    /**
+     * True if {@link #kerning} may be shared with another Font made by {@link #Font(Font)}.
+     */
+    private boolean sharedKerning = false;
     /**
      * When {@link #distanceField} is {@link DistanceFieldType#SDF} or {@link DistanceFieldType#MSDF}, this determines
      * how much the edges of the glyphs should be aliased sharply (higher values) or anti-aliased softly (lower values).
@@ -469,7 +666,26 @@ public class Font implements Disposable {
     public FontFamily family;
 
     /**
-     * Determines how colors are looked up by name; defaults to using {@link Colors}.
+     * The indices in {@link #family} of Fonts to try, in order, when the current Font doesn't have a glyph for a char;
+     * null if there are no fallbacks. Fallbacks are added with {@link #addFallback(Font)}.
+     */
+    protected IntArray fallbackIndices;
+    /**
+     * Caches the result of {@link #findFallback(char)} for each char that needed a fallback, with -1 for chars that no
+     * fallback Font has. This is cleared by {@link #clearFallbackCache()}.
+     */
+    protected final IntIntMap fallbackCache = new IntIntMap(32);
+
+    /**
+     * The quad template for each char this Font has drawn, calculated from its GlyphRegion and this Font's scale.
+     * These belong to this Font, rather than the GlyphRegion, so copies of a Font that share GlyphRegions (see
+     * {@link #unshareGlyphs()}) can be drawn at different scales without replacing each other's templates.
+     */
+    private final IntMap<QuadTemplate> quadTemplates = new IntMap<>(128);
+
+    /**
+     * Determines how colors are looked up by name; defaults to using {@link Colors}. This can be set to a
+     * {@link ColorLookup.CachingColorLookup} to avoid allocating when markup uses the same color names often.
      */
     public ColorLookup colorLookup = ColorLookup.INSTANCE;
 
@@ -481,12 +697,61 @@ public class Font implements Disposable {
      */
     public boolean integerPosition = false;
 
+    /**
+     * If true and {@link #integerPosition} is also true, the position of each glyph in a Line is rounded when the Line
+     * is laid out (by {@link #markup(String, Layout)}, {@link #regenerateLayout(Layout)}, or
+     * {@link #calculateSize(Line)}) and stored in {@link Line#origins}, so drawing a Line with no rotation only needs
+     * to round its starting position. This also rounds the left edge of each glyph instead of its center, which keeps
+     * pixel fonts with odd cell widths aligned to the pixel grid. This defaults to false.
+     */
+    public boolean integerLayout = false;
+
+    /**
+     * True while {@link #drawGlyphs(Batch, Line, float, float, int, float, float, float)} draws glyphs at positions
+     * from {@link Line#origins}, which are already rounded.
+     */
+    private boolean drawingSnapped = false;
+
+    /**
+     * Incremented by {@link #invalidateLayout()} on any Font; {@link Line#origins} stored before it last changed are
+     * calculated again when drawn.
+     */
+    private static int layoutEpoch = 0;
+
     /**
      * The name of the Font, for display purposes. This is not necessarily the same as the name of the font used in any
      * particular {@link FontFamily}.
      */
     public String name = "Unnamed Font";
 
+    /**
+     * The bits of a glyph that store the index of its Font in a {@link FontFamily}: bits 16-19 hold the lowest four
+     * bits of the index, bit 24 holds the next, and bit 31 holds the highest, allowing 64 Fonts in a family. The index
+     * is split this way so glyphs made before families could have more than 16 Fonts keep the same meaning.
+     */
+    public static final long FONT_INDEX_MASK = 0x810F0000L;
+
+    /**
+     * Gets the index of the Font in a {@link FontFamily} that the given glyph uses, from 0 to 63.
+     *
+     * @param glyph a long encoding the color, style information, and char of a glyph, as from a {@link Line}
+     * @return the index of the glyph's Font in {@link FontFamily#connected}
+     */
+    public static int fontIndex(long glyph) {
+        return (int) (glyph >>> 16 & 15 | glyph >>> 20 & 16 | glyph >>> 26 & 32);
+    }
+
+    /**
+     * Returns a copy of glyph that uses the Font at the given index in a {@link FontFamily}.
+     *
+     * @param glyph a long encoding the color, style information, and char of a glyph, as from a {@link Line}
+     * @param index the index of a Font in {@link FontFamily#connected}; only the lowest 6 bits are used
+     * @return glyph with its font index changed
+     */
+    public static long withFontIndex(long glyph, int index) {
+        return (glyph & ~FONT_INDEX_MASK) | (index & 15L) << 16 | (index & 16L) << 20 | (index & 32L) << 26;
+    }
+
     /**
      * Bit flag for bold mode, as a long.
      */
@@ -519,6 +784,13 @@ public class Font implements Disposable {
     public static final long SUPERSCRIPT = 3L << 25;
 
     private final float[] vertices = new float[20];
+    /**
+     * The Batch tint (as packed float bits) and glyph color (the upper 32 bits of a glyph) that
+     * {@link #glyphColor(Batch, long)} last combined, and the packed float color it produced.
+     */
+    private int lastTintBits = 0, lastGlyphColor = 0;
+    private float lastPackedColor = 0f;
+    private static final int WHITE_TINT_BITS = NumberUtils.floatToRawIntBits(Color.WHITE_FLOAT_BITS);
     private final Layout tempLayout = Layout.POOL.obtain();
     private final LongArray glyphBuffer = new LongArray(128);
     /**
@@ -621,6 +893,105 @@ public class Font implements Disposable {
      */
     public ShaderProgram shader = null;
 
+    /**
+     * The shared ShaderProgram for each distance field type that needs one; see {@link #obtainShader(DistanceFieldType)}.
+     */
+    private static final OrderedMap<DistanceFieldType, ShaderProgram> SHARED_SHADERS = new OrderedMap<>(4);
+    /**
+     * How many Fonts are using each ShaderProgram in {@link #SHARED_SHADERS}.
+     */
+    private static final ObjectIntMap<ShaderProgram> SHADER_REFERENCES = new ObjectIntMap<>(4);
+    /**
+     * The last value of {@code u_smoothing} that {@link #enableShader(Batch)} set for each ShaderProgram.
+     */
+    private static final ObjectFloatMap<ShaderProgram> SHADER_SMOOTHING = new ObjectFloatMap<>(4);
+
+    /**
+     * Gets the ShaderProgram that all Fonts with the given distance field type share, compiling it only if no Font is
+     * using it yet. Each call should be balanced by one call to {@link #releaseShader(ShaderProgram)}, which
+     * {@link #dispose()} does for this Font's {@link #shader}.
+     *
+     * @param distanceField the distance field type to get a shader for
+     * @return the shared ShaderProgram for distanceField, or null if it is {@link DistanceFieldType#STANDARD}
+     */
+    public static ShaderProgram obtainShader(DistanceFieldType distanceField) {
+        if (distanceField == null || distanceField == DistanceFieldType.STANDARD) return null;
+        ShaderProgram program = SHARED_SHADERS.get(distanceField);
+        if (program == null) {
+            if (distanceField == DistanceFieldType.MSDF) {
+                program = new ShaderProgram(vertexShader, msdfFragmentShader);
+                if (!program.isCompiled())
+                    Gdx.app.error("textratypist", "MSDF shader failed to compile: " + program.getLog());
+            } else {
+                program = DistanceFieldFont.createDistanceFieldShader();
+                if (!program.isCompiled())
+                    Gdx.app.error("textratypist", "SDF shader failed to compile: " + program.getLog());
+            }
+            SHARED_SHADERS.put(distanceField, program);
+        }
+        SHADER_REFERENCES.getAndIncrement(program, 0, 1);
+        return program;
+    }
+
+    /**
+     * If program is one of the shared ShaderPrograms from {@link #obtainShader(DistanceFieldType)}, this adds one
+     * to the number of Fonts using it. Other ShaderPrograms are returned without changes.
+     *
+     * @param program a ShaderProgram that another Font is using
+     * @return program, for chaining
+     */
+    private static ShaderProgram retainShader(ShaderProgram program) {
+        if (SHADER_REFERENCES.containsKey(program))
+            SHADER_REFERENCES.getAndIncrement(program, 0, 1);
+        return program;
+    }
+
+    /**
+     * Indicates that a Font is no longer using the given ShaderProgram. If it is a shared ShaderProgram from
+     * {@link #obtainShader(DistanceFieldType)}, it is only disposed once no Fonts are using it; any other
+     * ShaderProgram is disposed immediately, as before shaders were shared.
+     *
+     * @param program a ShaderProgram that a Font was using; may be null
+     */
+    public static void releaseShader(ShaderProgram program) {
+        if (program == null) return;
+        SHADER_SMOOTHING.remove(program, 0f);
+        if (SHADER_REFERENCES.containsKey(program)) {
+            if (SHADER_REFERENCES.getAndIncrement(program, 0, -1) > 1) return;
+            SHADER_REFERENCES.remove(program, 0);
+            for (OrderedMap.Entry<DistanceFieldType, ShaderProgram> e : SHARED_SHADERS) {
+                if (e.value == program) {
+                    SHARED_SHADERS.remove(e.key);
+                    break;
+                }
+            }
+        }
+        program.dispose();
+    }
+
+    /**
+     * Loads a page image for a font file, as a {@link PageTexture} if {@link #DEFER_PAGE_LOADING} is true, or as a
+     * normal Texture otherwise.
+     *
+     * @param textureHandle an existing image file
+     * @return a Texture for textureHandle, which may not be decoded yet
+     */
+    protected static Texture loadPage(FileHandle textureHandle) {
+        return DEFER_PAGE_LOADING ? PageTexture.create(textureHandle) : new Texture(textureHandle);
+    }
+
+    /**
+     * If texture is a {@link PageTexture} that hasn't been loaded yet, this loads it now; this must be called before
+     * drawing with any Texture that could be a page of this Font.
+     *
+     * @param texture a Texture that is about to be drawn
+     * @return texture, for chaining
+     */
+    protected static Texture ensureResident(Texture texture) {
+        if (texture instanceof PageTexture) ((PageTexture) texture).ensureResident();
+        return texture;
+    }
+
     //// font parsing section
 
     private static final int[] hexCodes = new int[]
@@ -892,7 +1263,12 @@ public class Font implements Disposable {
 
     /**
      * Copy constructor; does not copy the font's {@link #shader} or {@link #colorLookup}, if it has them (it uses the
-     * same reference for the new Font), but will fully copy everything else.
+     * same reference for the new Font), but will copy everything else. The glyph tables ({@link #mapping} with its
+     * GlyphRegions, {@link #nameLookup}, and {@link #kerning}) are shared with toCopy until either Font changes them
+     * with a method like {@link #fitCell(float, float, boolean)}, {@link #addImage(String, TextureRegion)}, or
+     * {@link #addAtlas(TextureAtlas)}, which copies them first; this makes copying a large Font very fast. If you
+     * change mapping, a GlyphRegion (such as by flipping it), or kerning directly, call {@link #unshareGlyphs()} or
+     * {@link #unshareKerning()} first so the other Font isn't affected.
      *
      * @param toCopy another Font to copy
      */
@@ -908,26 +1284,27 @@ public class Font implements Disposable {
         scaleY = toCopy.scaleY;
         originalCellWidth = toCopy.originalCellWidth;
         originalCellHeight = toCopy.originalCellHeight;
-        mapping = new IntMap<>(toCopy.mapping.size);
-        for (IntMap.Entry<GlyphRegion> e : toCopy.mapping) {
-            if (e.value == null) continue;
-            mapping.put(e.key, new GlyphRegion(e.value));
-        }
-        if(toCopy.nameLookup != null)
-            nameLookup = new ObjectIntMap<>(toCopy.nameLookup);
+        // The glyph tables are shared until either Font changes them; see unshareGlyphs() and unshareKerning().
+        mapping = toCopy.mapping;
+        nameLookup = toCopy.nameLookup;
+        sharedGlyphs = toCopy.sharedGlyphs = true;
         defaultValue = toCopy.defaultValue;
-        kerning = toCopy.kerning == null ? null : new IntIntMap(toCopy.kerning);
+        kerning = toCopy.kerning;
+        sharedKerning = toCopy.sharedKerning = kerning != null;
         solidBlock = toCopy.solidBlock;
         name = toCopy.name;
         integerPosition = toCopy.integerPosition;
+        integerLayout = toCopy.integerLayout;
 
         if (toCopy.family != null)
             family = new FontFamily(toCopy.family);
+        if (toCopy.fallbackIndices != null)
+            fallbackIndices = new IntArray(toCopy.fallbackIndices);
 
         // shader and colorLookup are not copied, because there isn't much point in having different copies of
         // a ShaderProgram or stateless ColorLookup. They are referenced directly.
         if (toCopy.shader != null)
-            shader = toCopy.shader;
+            shader = retainShader(toCopy.shader);
         if (toCopy.colorLookup != null)
             colorLookup = toCopy.colorLookup;
     }
@@ -996,15 +1373,7 @@ public class Font implements Disposable {
     public Font(String fntName, DistanceFieldType distanceField,
                 float xAdjust, float yAdjust, float widthAdjust, float heightAdjust, boolean makeGridGlyphs) {
         this.distanceField = distanceField;
-        if (distanceField == DistanceFieldType.MSDF) {
-            shader = new ShaderProgram(vertexShader, msdfFragmentShader);
-            if (!shader.isCompiled())
-                Gdx.app.error("textratypist", "MSDF shader failed to compile: " + shader.getLog());
-        } else if (distanceField == DistanceFieldType.SDF) {
-            shader = DistanceFieldFont.createDistanceFieldShader();
-            if (!shader.isCompiled())
-                Gdx.app.error("textratypist", "SDF shader failed to compile: " + shader.getLog());
-        }
+        shader = obtainShader(distanceField);
         loadFNT(fntName, xAdjust, yAdjust, widthAdjust, heightAdjust, makeGridGlyphs);
     }
 
@@ -1075,19 +1444,11 @@ public class Font implements Disposable {
     public Font(String fntName, String textureName, DistanceFieldType distanceField,
                 float xAdjust, float yAdjust, float widthAdjust, float heightAdjust, boolean makeGridGlyphs) {
         this.distanceField = distanceField;
-        if (distanceField == DistanceFieldType.MSDF) {
-            shader = new ShaderProgram(vertexShader, msdfFragmentShader);
-            if (!shader.isCompiled())
-                Gdx.app.error("textratypist", "MSDF shader failed to compile: " + shader.getLog());
-        } else if (distanceField == DistanceFieldType.SDF) {
-            shader = DistanceFieldFont.createDistanceFieldShader();
-            if (!shader.isCompiled())
-                Gdx.app.error("textratypist", "SDF shader failed to compile: " + shader.getLog());
-        }
+        shader = obtainShader(distanceField);
         FileHandle textureHandle;
         if ((textureHandle = Gdx.files.internal(textureName)).exists()
                 || (textureHandle = Gdx.files.local(textureName)).exists()) {
-            parents = Array.with(new TextureRegion(new Texture(textureHandle)));
+            parents = Array.with(new TextureRegion(loadPage(textureHandle)));
             if (distanceField == DistanceFieldType.SDF || distanceField == DistanceFieldType.MSDF) {
                 parents.first().getTexture().setFilter(Texture.TextureFilter.Linear, Texture.TextureFilter.Linear);
             }
@@ -1163,15 +1524,7 @@ public class Font implements Disposable {
     public Font(String fntName, TextureRegion textureRegion, DistanceFieldType distanceField,
                 float xAdjust, float yAdjust, float widthAdjust, float heightAdjust, boolean makeGridGlyphs) {
         this.distanceField = distanceField;
-        if (distanceField == DistanceFieldType.MSDF) {
-            shader = new ShaderProgram(vertexShader, msdfFragmentShader);
-            if (!shader.isCompiled())
-                Gdx.app.error("textratypist", "MSDF shader failed to compile: " + shader.getLog());
-        } else if (distanceField == DistanceFieldType.SDF) {
-            shader = DistanceFieldFont.createDistanceFieldShader();
-            if (!shader.isCompiled())
-                Gdx.app.error("textratypist", "SDF shader failed to compile: " + shader.getLog());
-        }
+        shader = obtainShader(distanceField);
         this.parents = Array.with(textureRegion);
         if (distanceField == DistanceFieldType.SDF || distanceField == DistanceFieldType.MSDF) {
             textureRegion.getTexture().setFilter(Texture.TextureFilter.Linear, Texture.TextureFilter.Linear);
@@ -1243,15 +1596,7 @@ public class Font implements Disposable {
     public Font(String fntName, Array<TextureRegion> textureRegions, DistanceFieldType distanceField,
                 float xAdjust, float yAdjust, float widthAdjust, float heightAdjust, boolean makeGridGlyphs) {
         this.distanceField = distanceField;
-        if (distanceField == DistanceFieldType.MSDF) {
-            shader = new ShaderProgram(vertexShader, msdfFragmentShader);
-            if (!shader.isCompiled())
-                Gdx.app.error("textratypist", "MSDF shader failed to compile: " + shader.getLog());
-        } else if (distanceField == DistanceFieldType.SDF) {
-            shader = DistanceFieldFont.createDistanceFieldShader();
-            if (!shader.isCompiled())
-                Gdx.app.error("textratypist", "SDF shader failed to compile: " + shader.getLog());
-        }
+        shader = obtainShader(distanceField);
         this.parents = textureRegions;
         if ((distanceField == DistanceFieldType.SDF || distanceField == DistanceFieldType.MSDF)
                 && textureRegions != null) {
@@ -1317,15 +1662,7 @@ public class Font implements Disposable {
     public Font(BitmapFont bmFont, DistanceFieldType distanceField,
                 float xAdjust, float yAdjust, float widthAdjust, float heightAdjust, boolean makeGridGlyphs) {
         this.distanceField = distanceField;
-        if (distanceField == DistanceFieldType.MSDF) {
-            shader = new ShaderProgram(vertexShader, msdfFragmentShader);
-            if (!shader.isCompiled())
-                Gdx.app.error("textratypist", "MSDF shader failed to compile: " + shader.getLog());
-        } else if (distanceField == DistanceFieldType.SDF) {
-            shader = DistanceFieldFont.createDistanceFieldShader();
-            if (!shader.isCompiled())
-                Gdx.app.error("textratypist", "SDF shader failed to compile: " + shader.getLog());
-        }
+        shader = obtainShader(distanceField);
         this.parents = bmFont.getRegions();
         if ((distanceField == DistanceFieldType.SDF || distanceField == DistanceFieldType.MSDF)
                 && parents != null) {
@@ -1333,7 +1670,14 @@ public class Font implements Disposable {
                 parent.getTexture().setFilter(Texture.TextureFilter.Linear, Texture.TextureFilter.Linear);
         }
         BitmapFont.BitmapFontData data = bmFont.getData();
-        mapping = new IntMap<>(128);
+        int glyphCount = 0;
+        for (BitmapFont.Glyph[] page : data.glyphs) {
+            if (page == null) continue;
+            for (BitmapFont.Glyph glyph : page) {
+                if (glyph != null) glyphCount++;
+            }
+        }
+        mapping = new IntMap<>(glyphCount + 2);
         int minWidth = Integer.MAX_VALUE;
         for (BitmapFont.Glyph[] page : data.glyphs) {
             if (page == null) continue;
@@ -1359,38 +1703,23 @@ public class Font implements Disposable {
                     gr.offsetY = (-h - glyph.yoffset) + yAdjust;
                     gr.xAdvance = a;
                     mapping.put(glyph.id & 0xFFFF, gr);
+                    final boolean isBracket = (glyph.id & 0xFFFF) == '[';
+                    if (isBracket) mapping.put(2, gr);
                     if (glyph.kerning != null) {
-                        if (kerning == null) kerning = new IntIntMap(128);
+                        // Only non-null pages can hold kerning, and each pair is read once; the '[' glyph's pairs
+                        // and pairs ending in '[' are also stored for char 2, which markup uses in place of '['.
+                        if (kerning == null) kerning = new IntIntMap(glyphCount);
+                        final int first = glyph.id << 16;
                         for (int b = 0; b < glyph.kerning.length; b++) {
-                            byte[] kern = glyph.kerning[b];
-                            if (kern != null) {
-                                int k;
-                                for (int i = 0; i < 512; i++) {
-                                    k = kern[i];
-                                    if (k != 0) {
-                                        kerning.put(glyph.id << 16 | (b << 9 | i), k);
-                                    }
-                                    if ((b << 9 | i) == '[') {
-                                        kerning.put(glyph.id << 16 | 2, k);
-                                    }
-                                }
-                            }
-                        }
-                    }
-                    if ((glyph.id & 0xFFFF) == '[') {
-                        mapping.put(2, gr);
-                        if (glyph.kerning != null) {
-                            for (int b = 0; b < glyph.kerning.length; b++) {
-                                byte[] kern = glyph.kerning[b];
-                                if (kern != null) {
-                                    int k;
-                                    for (int i = 0; i < 512; i++) {
-                                        k = kern[i];
-                                        if (k != 0) {
-                                            kerning.put(2 << 16 | (b << 9 | i), k);
-                                        }
-                                    }
-                                }
+                            final byte[] kern = glyph.kerning[b];
+                            if (kern == null) continue;
+                            for (int i = 0; i < 512; i++) {
+                                final int k = kern[i];
+                                if (k == 0) continue;
+                                final int second = b << 9 | i;
+                                kerning.put(first | second, k);
+                                if (second == '[') kerning.put(first | 2, k);
+                                if (isBracket) kerning.put(2 << 16 | second, k);
                             }
                         }
                     }
@@ -1470,7 +1799,7 @@ public class Font implements Disposable {
                 String textureName = fnt.substring(idx = indexAfter(fnt, "file=\"", idx), idx = fnt.indexOf('"', idx));
                 if ((textureHandle = Gdx.files.internal(textureName)).exists()
                         || (textureHandle = Gdx.files.local(textureName)).exists()) {
-                    parents.add(new TextureRegion(new Texture(textureHandle)));
+                    parents.add(new TextureRegion(loadPage(textureHandle)));
                     if (distanceField == DistanceFieldType.SDF || distanceField == DistanceFieldType.MSDF)
                         parents.peek().getTexture().setFilter(Texture.TextureFilter.Linear, Texture.TextureFilter.Linear);
                 } else {
@@ -1590,7 +1919,7 @@ public class Font implements Disposable {
             String textureName = fnt.getString("FilePath");
             if ((textureHandle = Gdx.files.internal(textureName)).exists()
                     || (textureHandle = Gdx.files.local(textureName)).exists()) {
-                parents.add(parent = new TextureRegion(new Texture(textureHandle)));
+                parents.add(parent = new TextureRegion(loadPage(textureHandle)));
             } else {
                 throw new RuntimeException("Missing texture file: " + textureName);
             }
@@ -1676,7 +2005,7 @@ public class Font implements Disposable {
         scaleY *= vertical;
         cellWidth *= horizontal;
         cellHeight *= vertical;
-        return this;
+        return invalidateLayout();
     }
 
     /**
@@ -1691,7 +2020,7 @@ public class Font implements Disposable {
         scaleY = height / originalCellHeight;
         cellWidth = width;
         cellHeight = height;
-        return this;
+        return invalidateLayout();
     }
 
     /**
@@ -1704,7 +2033,7 @@ public class Font implements Disposable {
     public Font adjustLineHeight(float multiplier) {
         cellHeight *= multiplier;
         originalCellHeight *= multiplier;
-        return this;
+        return invalidateLayout();
     }
 
     /**
@@ -1717,7 +2046,7 @@ public class Font implements Disposable {
     public Font adjustCellWidth(float multiplier) {
         cellWidth *= multiplier;
         originalCellWidth *= multiplier;
-        return this;
+        return invalidateLayout();
     }
 
     /**
@@ -1731,6 +2060,7 @@ public class Font implements Disposable {
      * @return this Font, for chaining
      */
     public Font fitCell(float width, float height, boolean center) {
+        unshareGlyphs();
         cellWidth = width;
         cellHeight = height;
         float wsx = width / scaleX;
@@ -1740,14 +2070,59 @@ public class Font implements Disposable {
                 GlyphRegion g = vs.next();
                 g.offsetX += (wsx - g.xAdvance) * 0.5f;
                 g.xAdvance = wsx;
+                g.clearTemplate();
             }
         } else {
             while (vs.hasNext) {
-                vs.next().xAdvance = wsx;
+                GlyphRegion g = vs.next();
+                g.xAdvance = wsx;
+                g.clearTemplate();
             }
         }
         isMono = true;
         kerning = null;
+        sharedKerning = false;
+        return invalidateLayout();
+    }
+
+    /**
+     * If this Font's {@link #mapping} (with its GlyphRegions) and {@link #nameLookup} are shared with another Font
+     * because one was copied from the other with {@link #Font(Font)}, this gives this Font its own copies of them.
+     * Methods in Font that change those call this already; you only need to call it before changing mapping, a
+     * GlyphRegion in it, or nameLookup directly. Does nothing if they aren't shared.
+     *
+     * @return this Font, for chaining
+     */
+    public Font unshareGlyphs() {
+        if (sharedGlyphs) {
+            IntMap<GlyphRegion> copy = new IntMap<>(mapping.size);
+            for (IntMap.Entry<GlyphRegion> e : new IntMap.Entries<>(mapping)) {
+                if (e.value == null) continue;
+                GlyphRegion gr = new GlyphRegion(e.value);
+                if (e.value == defaultValue) defaultValue = gr;
+                copy.put(e.key, gr);
+            }
+            mapping = copy;
+            if (nameLookup != null)
+                nameLookup = new ObjectIntMap<>(nameLookup);
+            sharedGlyphs = false;
+        }
+        return this;
+    }
+
+    /**
+     * If this Font's {@link #kerning} is shared with another Font because one was copied from the other with
+     * {@link #Font(Font)}, this gives this Font its own copy of it. You only need to call this before changing kerning
+     * directly. Does nothing if it isn't shared.
+     *
+     * @return this Font, for chaining
+     */
+    public Font unshareKerning() {
+        if (sharedKerning) {
+            if (kerning != null)
+                kerning = new IntIntMap(kerning);
+            sharedKerning = false;
+        }
         return this;
     }
 
@@ -1865,7 +2240,7 @@ public class Font implements Disposable {
      */
     public Font addImage(String character, TextureRegion region, float offsetX, float offsetY, float xAdvance) {
         if(character != null && !character.isEmpty())
-            mapping.put(character.charAt(character.length() - 1), new GlyphRegion(region, offsetX, offsetY, xAdvance));
+            unshareGlyphs().mapping.put(character.charAt(character.length() - 1), new GlyphRegion(region, offsetX, offsetY, xAdvance));
         return this;
     }
 
@@ -1886,7 +2261,7 @@ public class Font implements Disposable {
      */
     public Font addImage(String character, TextureRegion region) {
         if(character != null && !character.isEmpty())
-            mapping.put(character.charAt(character.length() - 1), new GlyphRegion(region));
+            unshareGlyphs().mapping.put(character.charAt(character.length() - 1), new GlyphRegion(region));
         return this;
     }
 
@@ -1898,6 +2273,7 @@ public class Font implements Disposable {
      * @return this Font, for chaining
      */
     public Font addAtlas(TextureAtlas atlas) {
+        unshareGlyphs();
         Array<TextureAtlas.AtlasRegion> regions = atlas.getRegions();
         if(nameLookup == null)
             nameLookup = new ObjectIntMap<>(regions.size, 0.75f);
@@ -1935,22 +2311,34 @@ public class Font implements Disposable {
      */
     public void enableShader(Batch batch) {
         if (distanceField == DistanceFieldType.MSDF) {
-            if (batch.getShader() != shader) {
-                batch.setShader(shader);
-                shader.setUniformf("u_smoothing", 7f * actualCrispness * Math.max(cellHeight / originalCellHeight, cellWidth / originalCellWidth));
-            }
+            setSmoothing(batch, 7f * actualCrispness * Math.max(cellHeight / originalCellHeight, cellWidth / originalCellWidth));
         } else if (distanceField == DistanceFieldType.SDF) {
-            if (batch.getShader() != shader) {
-                batch.setShader(shader);
-                final float scale = Math.max(cellHeight / originalCellHeight, cellWidth / originalCellWidth) * 0.5f + 0.125f;
-                shader.setUniformf("u_smoothing", (actualCrispness / (scale)));
-            }
+            final float scale = Math.max(cellHeight / originalCellHeight, cellWidth / originalCellWidth) * 0.5f + 0.125f;
+            setSmoothing(batch, actualCrispness / scale);
         } else {
             batch.setShader(null);
         }
         batch.setPackedColor(Color.WHITE_FLOAT_BITS);
     }
 
+    /**
+     * Binds {@link #shader} to batch if it isn't already bound, and sets its {@code u_smoothing} uniform. Because
+     * Fonts with the same distance field type share one ShaderProgram, the shader is often already bound; then this
+     * only changes the uniform, and only flushes the batch if the smoothing actually changes.
+     */
+    private void setSmoothing(Batch batch, float smoothing) {
+        if (batch.getShader() != shader) {
+            batch.setShader(shader);
+        } else if (SHADER_SMOOTHING.get(shader, Float.NaN) == smoothing) {
+            return;
+        } else {
+            // Glyphs already in the batch must be drawn with the smoothing they were submitted with.
+            batch.flush();
+        }
+        shader.setUniformf("u_smoothing", smoothing);
+        SHADER_SMOOTHING.put(shader, smoothing);
+    }
+
     /**
      * Draws the specified text at the given x,y position (in world space) with a white foreground.
      *
@@ -1976,7 +2364,9 @@ public class Font implements Disposable {
         batch.setPackedColor(NumberUtils.intToFloatColor(Integer.reverseBytes(color)));
         GlyphRegion current;
         for (int i = 0, n = text.length(); i < n; i++) {
-            batch.draw(current = mapping.get(text.charAt(i)), x + current.offsetX, y + current.offsetY, current.getRegionWidth(), current.getRegionHeight());
+            current = mapping.get(text.charAt(i));
+            ensureResident(current.getTexture());
+            batch.draw(current, x + current.offsetX, y + current.offsetY, current.getRegionWidth(), current.getRegionHeight());
             x += current.getRegionWidth();
         }
     }
@@ -2033,7 +2423,8 @@ public class Font implements Disposable {
     public void drawBlocks(Batch batch, char blockChar, int[][] colors, float x, float y) {
         final TextureRegion block = mapping.get(blockChar);
         if (block == null) return;
-        final Texture parent = block.getTexture();
+        if (TextraStats.ENABLED) TextraStats.drawBlocksCalls++;
+        final Texture parent = ensureResident(block.getTexture());
         final float ipw = 1.0f / parent.getWidth();
         final float iph = 1.0f / parent.getHeight();
         final float u = block.getU(),
@@ -2076,6 +2467,7 @@ public class Font implements Disposable {
                     vertices[2] = vertices[7] = vertices[12] = vertices[17] =
                             NumberUtils.intBitsToFloat(Integer.reverseBytes(colors[xi][yi] & -2));
                     batch.draw(parent, vertices, 0, 20);
+                    if (TextraStats.ENABLED) TextraStats.quadsDrawn++;
                 }
                 vertices[1] = vertices[16] += cellHeight;
                 vertices[6] = vertices[11] += cellHeight;
@@ -2116,7 +2508,7 @@ public class Font implements Disposable {
      * @param height   the height of one cell for the purposes of sequence instructions
      */
     protected void drawBlockSequence(Batch batch, float[] sequence, TextureRegion block, float color, float x, float y, float width, float height) {
-        final Texture parent = block.getTexture();
+        final Texture parent = ensureResident(block.getTexture());
         final float ipw = 1f / parent.getWidth();
         final float iph = 1f / parent.getHeight();
         final float u = block.getU(),
@@ -2155,6 +2547,10 @@ public class Font implements Disposable {
 
             batch.draw(parent, vertices, 0, 20);
         }
+        if (TextraStats.ENABLED) {
+            TextraStats.blockSequenceCalls++;
+            TextraStats.quadsDrawn += sequence.length >>> 2;
+        }
     }
     /**
      * An internal method that draws blocks in a sequence specified by a {@code float[]}, with the block usually
@@ -2173,7 +2569,7 @@ public class Font implements Disposable {
      */
 
     protected void drawBlockSequence(Batch batch, float[] sequence, TextureRegion block, float color, float x, float y, float width, float height, float rotation) {
-        final Texture parent = block.getTexture();
+        final Texture parent = ensureResident(block.getTexture());
         final float ipw = 1f / parent.getWidth();
         final float iph = 1f / parent.getHeight();
         final float u = block.getU(),
@@ -2229,6 +2625,10 @@ public class Font implements Disposable {
 
             batch.draw(parent, vertices, 0, 20);
         }
+        if (TextraStats.ENABLED) {
+            TextraStats.blockSequenceCalls++;
+            TextraStats.quadsDrawn += sequence.length >>> 2;
+        }
     }
 
     /**
@@ -2428,7 +2828,14 @@ public class Font implements Disposable {
      */
     public float drawGlyphs(Batch batch, Line glyphs, float x, float y, int align, float rotation, float originX, float originY) {
         if (glyphs == null || glyphs.glyphs.size == 0) return 0;
+        if (rotation == 0f && integerLayout && integerPosition) {
+            if (glyphs.originsModCount != glyphs.modCount || glyphs.originsEpoch != layoutEpoch
+                    || glyphs.origins == null || glyphs.origins.size != glyphs.glyphs.size)
+                snapGlyphOrigins(glyphs);
+            return drawSnappedGlyphs(batch, glyphs, x, y, align);
+        }
         float drawn = 0f, cs = MathUtils.cosDeg(rotation), sn = MathUtils.sinDeg(rotation);
+        final int renderCalls = TextraStats.ENABLED && batch instanceof SpriteBatch ? ((SpriteBatch) batch).renderCalls : 0;
 
         final float worldOriginX = x + originX;
         final float worldOriginY = y + originY;
@@ -2465,7 +2872,7 @@ public class Font implements Disposable {
                 continue;
             }
             Font font = null;
-            if (family != null) font = family.connected[(int) (glyph >>> 16 & 15)];
+            if (family != null) font = family.connected[fontIndex(glyph)];
             if (font == null) font = this;
 
             if (font.kerning != null) {
@@ -2488,6 +2895,71 @@ public class Font implements Disposable {
             yChange += sn * single;
             drawn += single;
         }
+        if (TextraStats.ENABLED && batch instanceof SpriteBatch)
+            TextraStats.batchFlushes += ((SpriteBatch) batch).renderCalls - renderCalls;
+        return drawn;
+    }
+
+    /**
+     * Draws a Line without rotation using the glyph positions stored in {@link Line#origins} by
+     * {@link #snapGlyphOrigins(Line)}; only the starting position is rounded here.
+     */
+    private float drawSnappedGlyphs(Batch batch, Line glyphs, float x, float y, int align) {
+        final int renderCalls = TextraStats.ENABLED && batch instanceof SpriteBatch ? ((SpriteBatch) batch).renderCalls : 0;
+        if (Align.isCenterHorizontal(align)) {
+            x -= glyphs.width * 0.5f;
+        } else if (Align.isRight(align)) {
+            x -= glyphs.width;
+        }
+        x = MathUtils.round(x);
+        y = MathUtils.round(y);
+        final long[] items = glyphs.glyphs.items;
+        final float[] origins = glyphs.origins.items;
+        float drawn = 0f;
+        boolean curly = false;
+        drawingSnapped = true;
+        try {
+            for (int i = 0, n = glyphs.glyphs.size; i < n; i++) {
+                final long glyph = items[i];
+                final char ch = (char) glyph;
+                if (curly) {
+                    if (ch == '}') {
+                        curly = false;
+                        continue;
+                    } else if (ch == '{')
+                        curly = false;
+                    else continue;
+                } else if (ch == '{') {
+                    curly = true;
+                    continue;
+                }
+                drawn += drawGlyph(batch, glyph, x + origins[i], y, 0f);
+            }
+        } finally {
+            drawingSnapped = false;
+        }
+        if (TextraStats.ENABLED && batch instanceof SpriteBatch)
+            TextraStats.batchFlushes += ((SpriteBatch) batch).renderCalls - renderCalls;
+        return drawn;
+    }
+
+    /**
+     * Draws the specified CompactLine of glyphs with a Batch at a given x, y position, using {@code align} to
+     * determine how to position the text. This expands the CompactLine into a pooled {@link Line} temporarily, so it
+     * is meant for text that is stored compactly for a long time and only drawn occasionally.
+     *
+     * @param batch  typically a SpriteBatch
+     * @param glyphs a CompactLine, typically created from a Line produced by {@link #markup(String, Layout)}
+     * @param x      the x position in world space to start drawing the glyph at (where this is depends on align)
+     * @param y      the y position in world space to start drawing the glyph at (where this is depends on align)
+     * @param align  an {@link Align} constant; if {@link Align#left}, x and y refer to the lower left corner
+     * @return the distance in world units the drawn CompactLine uses, left to right
+     */
+    public float drawGlyphs(Batch batch, CompactLine glyphs, float x, float y, int align) {
+        if (glyphs == null || glyphs.size() == 0) return 0;
+        Line line = glyphs.expandInto(Line.POOL.obtain());
+        float drawn = drawGlyphs(batch, line, x, y, align);
+        Line.POOL.free(line);
         return drawn;
     }
 
@@ -2517,6 +2989,35 @@ public class Font implements Disposable {
         return changedW;
     }
 
+    /**
+     * Gets the Font that glyph is drawn with: the Font in {@link #family} at the glyph's font index (which may be a
+     * fallback), or the given default if there is no family or nothing is at that index.
+     *
+     * @param glyph       a long encoding the color, style information, and char of a glyph, as from a {@link Line}
+     * @param defaultFont the Font to use if glyph doesn't select one from the family
+     * @return the Font to measure glyph with
+     */
+    private Font familyFont(long glyph, Font defaultFont) {
+        if (family == null) return defaultFont;
+        final Font f = family.connected[fontIndex(glyph)];
+        return f == null ? defaultFont : f;
+    }
+
+    /**
+     * Gets the horizontal scale that glyph is drawn at by font, using the scale stored in glyph; this matches what
+     * {@link #regenerateLayout(Layout)} uses, including the special scaling for chars in the private use area.
+     *
+     * @param font  the Font that glyph is drawn with, as from {@link #familyFont(long, Font)}
+     * @param glyph a long encoding the color, style information, and char of a glyph, as from a {@link Line}
+     * @return the scale to pass to {@link #xAdvance(Font, float, long)} for glyph
+     */
+    private static float glyphScaleX(Font font, long glyph) {
+        final char c = (char) glyph;
+        if (c >= 0xE000 && c < 0xF800)
+            return ((glyph + 0x300000L >>> 20 & 15) + 1) * 0.25f * font.cellHeight / (font.mapping.get(c, font.defaultValue).xAdvance * 1.25f);
+        return font.scaleX * ((glyph + 0x300000L >>> 20 & 15) + 1) * 0.25f;
+    }
+
     /**
      * Gets the distance to advance the cursor after drawing {@code glyph}, scaled by {@link #scaleX} as if drawing.
      * This handles monospaced fonts correctly and ensures that for variable-width fonts, subscript, midscript, and
@@ -2575,7 +3076,7 @@ public class Font implements Disposable {
                 continue;
             }
             Font font = null;
-            if (family != null) font = family.connected[(int) (glyph >>> 16 & 15)];
+            if (family != null) font = family.connected[fontIndex(glyph)];
             if (font == null) font = this;
             GlyphRegion tr = font.mapping.get(ch);
             if (tr == null) continue;
@@ -2649,7 +3150,7 @@ public class Font implements Disposable {
                 continue;
             }
             Font font = null;
-            if (family != null) font = family.connected[(int) (glyph >>> 16 & 15)];
+            if (family != null) font = family.connected[fontIndex(glyph)];
             if (font == null) font = this;
             GlyphRegion tr = font.mapping.get(ch);
             if (tr == null) continue;
@@ -2692,14 +3193,125 @@ public class Font implements Disposable {
             }
         }
         line.width = drawn;
+        if (integerLayout && integerPosition) snapGlyphOrigins(line);
+        if (TextraStats.ENABLED) {
+            TextraStats.calculateSizeCalls++;
+            TextraStats.calculateSizeGlyphs += glyphs.size;
+        }
         return drawn;
     }
 
+    /**
+     * Makes every Font calculate {@link Line#origins} again before they are next drawn. This is called by
+     * {@link #scale(float, float)}, {@link #scaleTo(float, float)}, {@link #adjustLineHeight(float)},
+     * {@link #adjustCellWidth(float)}, {@link #fitCell(float, float, boolean)}, and {@link #setFamily(FontFamily)};
+     * call it yourself after changing anything else that moves glyphs, such as {@link #scaleX}, {@link #scaleY},
+     * {@link #cellWidth}, {@link #cellHeight}, {@link #kerning}, or the offsets or advance of a GlyphRegion in
+     * {@link #mapping}.
+     *
+     * @return this, for chaining
+     */
+    public Font invalidateLayout() {
+        layoutEpoch++;
+        return this;
+    }
+
+    /**
+     * Marks every Line in layout from firstLine on as {@link Line#modified() modified}, since regenerating or marking
+     * up text changes Line glyphs directly, then snaps their origins if {@link #integerLayout} and
+     * {@link #integerPosition} are on.
+     */
+    private void markModified(Layout layout, int firstLine) {
+        final boolean snap = integerLayout && integerPosition;
+        for (int i = firstLine, n = layout.lines(); i < n; i++) {
+            if (snap) snapGlyphOrigins(layout.getLine(i).modified());
+            else layout.getLine(i).modified();
+        }
+    }
+
+    /**
+     * Calls {@link #snapGlyphOrigins(Line)} on every Line in layout.
+     *
+     * @param layout a Layout that was laid out with this Font
+     * @return layout, for chaining
+     */
+    public Layout snapGlyphOrigins(Layout layout) {
+        for (int i = 0, n = layout.lines(); i < n; i++) {
+            snapGlyphOrigins(layout.getLine(i));
+        }
+        return layout;
+    }
+
+    /**
+     * Stores the x position of each glyph in line, relative to the start of the line and rounded to an integer, in
+     * {@link Line#origins}. The positions match how
+     * {@link #drawGlyphs(Batch, Line, float, float, int, float, float, float)} would place each glyph, including
+     * kerning, but are rounded from the running total so rounding errors don't build up. This is called automatically
+     * when {@link #integerLayout} and {@link #integerPosition} are both true, and again when such a Line is drawn if
+     * its {@link Line#modCount} changed or {@link #invalidateLayout()} was called since its origins were stored.
+     *
+     * @param line a Line that was laid out with this Font
+     */
+    public void snapGlyphOrigins(Line line) {
+        final LongArray glyphs = line.glyphs;
+        line.originsModCount = line.modCount;
+        line.originsEpoch = layoutEpoch;
+        if (line.origins == null) line.origins = new FloatArray(glyphs.size);
+        final float[] origins = line.origins.setSize(glyphs.size);
+        float position = 0f;
+        int kern = -1;
+        boolean curly = false, initial = true;
+        for (int i = 0, n = glyphs.size; i < n; i++) {
+            final long glyph = glyphs.get(i);
+            final char ch = (char) glyph;
+            origins[i] = MathUtils.round(position);
+            if (curly) {
+                if (ch == '}') {
+                    curly = false;
+                    continue;
+                } else if (ch == '{')
+                    curly = false;
+                else continue;
+            } else if (ch == '{') {
+                curly = true;
+                continue;
+            }
+            Font font = null;
+            if (family != null) font = family.connected[fontIndex(glyph)];
+            if (font == null) font = this;
+            final float scale = ((glyph + 0x300000L >>> 20 & 15) + 1) * 0.25f;
+            if (font.kerning != null) {
+                kern = kern << 16 | ch;
+                position += font.kerning.get(kern, 0) * font.scaleX * scale;
+            }
+            if (initial) {
+                float ox = font.mapping.get(ch, font.defaultValue).offsetX * font.scaleX * scale;
+                if (ox < 0) position -= ox;
+                initial = false;
+            }
+            origins[i] = MathUtils.round(position);
+            // This matches the width that drawGlyph() returns.
+            final GlyphRegion tr = font.mapping.get(ch);
+            if (tr == null) continue;
+            if (tr.offsetX != tr.offsetX) {
+                position += cellWidth;
+                continue;
+            }
+            float changedW = tr.xAdvance * (ch >= 0xE000 && ch < 0xF800
+                    ? scale * font.cellHeight / (tr.xAdvance * 1.25f) : font.scaleX * scale);
+            if ((glyph & SUPERSCRIPT) != 0L && !font.isMono)
+                changedW *= 0.5f;
+            position += changedW;
+        }
+    }
+
     public float calculateSize(Layout layout) {
+        final long startTime = TextraStats.ENABLED ? TimeUtils.nanoTime() : 0L;
         float w = 0f;
         for (int i = 0; i < layout.lines(); i++) {
             w = Math.max(w, calculateSize(layout.getLine(i)));
         }
+        if (TextraStats.ENABLED) TextraStats.calculateSizeNanos += TimeUtils.nanoTime() - startTime;
         return w;
     }
 
@@ -2722,6 +3334,35 @@ public class Font implements Disposable {
         return drawGlyph(batch, glyph, x, y, 0f, 1f, 1f);
     }
 
+    /**
+     * Gets the packed float color to draw the given glyph with, which is the glyph's color multiplied by the Batch's
+     * current color (its tint). The tint is read once as packed float bits; if it is opaque white, no multiplication
+     * is done at all. The result is cached, so a run of glyphs with the same color (the usual case) is only converted
+     * once, as long as the tint doesn't change.
+     *
+     * @param batch the Batch that will draw glyph; its color is used as a tint
+     * @param glyph a long storing a char, format, and color
+     * @return a packed float color, as used in Batch vertices
+     */
+    protected float glyphColor(Batch batch, long glyph) {
+        final int tintBits = NumberUtils.floatToRawIntBits(batch.getPackedColor());
+        final int glyphColor = (int) (glyph >>> 32);
+        if (tintBits == lastTintBits && glyphColor == lastGlyphColor) return lastPackedColor;
+        lastTintBits = tintBits;
+        lastGlyphColor = glyphColor;
+        if (tintBits == WHITE_TINT_BITS) {
+            return lastPackedColor = NumberUtils.intBitsToFloat((glyphColor >>> 1 & 127) << 25
+                    | glyphColor >>> 24
+                    | (glyphColor >>> 16 & 0xFF) << 8
+                    | (glyphColor >>> 8 & 0xFF) << 16);
+        }
+        final Color tint = batch.getColor();
+        return lastPackedColor = NumberUtils.intBitsToFloat(((int) (tint.a * (glyphColor >>> 1 & 127)) << 25)
+                | (int) (tint.r * (glyphColor >>> 24))
+                | (int) (tint.g * (glyphColor >>> 16 & 0xFF)) << 8
+                | (int) (tint.b * (glyphColor >>> 8 & 0xFF)) << 16);
+    }
+
     /**
      * Draws the specified glyph with a Batch at the given x, y position and with the specified counterclockwise
      * rotation, measured in degrees. The glyph contains multiple types of data all packed into one {@code long}:
@@ -2763,27 +3404,23 @@ public class Font implements Disposable {
         final float cos = MathUtils.cosDeg(rotation);
 
         Font font = null;
-        if (family != null) font = family.connected[(int) (glyph >>> 16 & 15)];
+        if (family != null) font = family.connected[fontIndex(glyph)];
         if (font == null) font = this;
         char c;
         GlyphRegion tr = font.mapping.get(c = (char) glyph);
         if (tr == null) return 0f;
-        float color = NumberUtils.intBitsToFloat(((int) (batch.getColor().a * (glyph >>> 33 & 127)) << 25)
-                | (int)(batch.getColor().r * (glyph >>> 56))
-                | (int)(batch.getColor().g * (glyph >>> 48 & 0xFF)) << 8
-                | (int)(batch.getColor().b * (glyph >>> 40 & 0xFF)) << 16);
-//                | (0xFFFFFF & Integer.reverseBytes((int) (glyph >>> 32))));
+        float color = glyphColor(batch, glyph);
 
         float scale = ((glyph + 0x300000L >>> 20 & 15) + 1) * 0.25f;
-        float scaleX;
-        float scaleY;
-        if(c >= 0xE000 && c < 0xF800){
-            scaleX = scaleY = scale * font.cellHeight / (tr.xAdvance*1.25f);
-        }
-        else {
-            scaleX = font.scaleX * scale;
-            scaleY = font.scaleY * scale;
-        }
+        // The quad template only changes when the Font's scale or line height changes, or the GlyphRegion does.
+        QuadTemplate quad = font.quadTemplates.get(c);
+        if (quad == null) {
+            font.quadTemplates.put(c, quad = new QuadTemplate());
+            quad.update(font, tr, c);
+        } else if (!quad.matches(font, tr))
+            quad.update(font, tr, c);
+        float scaleX = quad.scaleX * scale;
+        float scaleY = quad.scaleY * scale;
         float centerX = font.cellWidth * scaleX * 0.5f;
         float centerY = font.cellHeight * scaleY * 0.5f;
 
@@ -2793,10 +3430,11 @@ public class Font implements Disposable {
             drawBlockSequence(batch, boxes, font.mapping.get(solidBlock, tr), color,
                     x - cellWidth * (sizingX - 1.0f) + centerX, y - cellHeight * (sizingY - 1.0f) + centerY,
                     cellWidth * sizingX, cellHeight * sizingY, rotation);
+            if (TextraStats.ENABLED) TextraStats.glyphsDrawn++;
             return cellWidth;
         }
 
-        Texture tex = tr.getTexture();
+        Texture tex = ensureResident(tr.getTexture());
         float x0 = 0f;
         float x1 = 0f;
         float x2 = 0f;
@@ -2809,14 +3447,19 @@ public class Font implements Disposable {
         v = tr.getV();
         u2 = tr.getU2();
         v2 = tr.getV2();
-        float w = tr.getRegionWidth() * scaleX * sizingX;
-        float changedW = tr.xAdvance * scaleX;
-        float h = tr.getRegionHeight() * scaleY * sizingY;
-        float xc = tr.offsetX * scaleX - centerX * sizingX;
-        float yt = (font.cellHeight * scale) - centerY - (tr.getRegionHeight() + tr.offsetY) * scaleY;
-
-        x = font.handleIntegerPosition(x + centerX);
-        y = font.handleIntegerPosition(y + centerY);
+        float w = quad.width * scale * sizingX;
+        float changedW = quad.advance * scale;
+        float h = quad.height * scale * sizingY;
+        float xc = quad.x * scale - centerX * sizingX;
+        float yt = (font.cellHeight * scale) - centerY - quad.top * scale;
+
+        if (drawingSnapped) {
+            x += centerX;
+            y += centerY;
+        } else {
+            x = font.handleIntegerPosition(x + centerX);
+            y = font.handleIntegerPosition(y + centerY);
+        }
         if ((glyph & OBLIQUE) != 0L) {
             x0 += h * 0.2f;
             x1 -= h * 0.2f;
@@ -2880,6 +3523,10 @@ public class Font implements Disposable {
         vertices[16] = ((vertices[1] = (y + sin * p0x + cos * p0y)) - (vertices[6] = (y + sin * p1x + cos * p1y)) + (vertices[11] = (y + sin * p2x + cos * p2y)));
 
         batch.draw(tex, vertices, 0, 20);
+        if (TextraStats.ENABLED) {
+            TextraStats.glyphsDrawn++;
+            TextraStats.quadsDrawn += (glyph & BOLD) != 0L ? 5 : 1;
+        }
         if ((glyph & BOLD) != 0L) {
             p0x += 1f;
             p1x += 1f;
@@ -2950,7 +3597,8 @@ public class Font implements Disposable {
                     vertices[15] = (vertices[0] = x + cos * p0x - sin * p0y) - (vertices[5] = x + cos * p1x - sin * p1y) + (vertices[10] = x + cos * p2x - sin * p2y);
                     vertices[16] = (vertices[1] = y + sin * p0x + cos * p0y) - (vertices[6] = y + sin * p1x + cos * p1y) + (vertices[11] = y + sin * p2x + cos * p2y);
 
-                    batch.draw(under.getTexture(), vertices, 0, 20);
+                    batch.draw(ensureResident(under.getTexture()), vertices, 0, 20);
+                    if (TextraStats.ENABLED) TextraStats.quadsDrawn++;
                 }
             }
         }
@@ -2998,7 +3646,8 @@ public class Font implements Disposable {
                     vertices[15] = (vertices[0] = x + cos * p0x - sin * p0y) - (vertices[5] = x + cos * p1x - sin * p1y) + (vertices[10] = x + cos * p2x - sin * p2y);
                     vertices[16] = (vertices[1] = y + sin * p0x + cos * p0y) - (vertices[6] = y + sin * p1x + cos * p1y) + (vertices[11] = y + sin * p2x + cos * p2y);
 
-                    batch.draw(dash.getTexture(), vertices, 0, 20);
+                    batch.draw(ensureResident(dash.getTexture()), vertices, 0, 20);
+                    if (TextraStats.ENABLED) TextraStats.quadsDrawn++;
                 }
             }
         }
@@ -3051,6 +3700,39 @@ public class Font implements Disposable {
      * @return appendTo, for chaining
      */
     public Layout markup(String text, Layout appendTo) {
+        return markup(text, appendTo, null);
+    }
+
+    /**
+     * Like {@link #markup(String, Layout)}, but if {@code state} is non-null, this starts with the color, style, scale,
+     * font, and case-changing modes stored in {@code state} instead of the defaults, and stores those back into
+     * {@code state} when it finishes. This allows text to be given to this in pieces, with any markup tags that were
+     * opened in one piece still applying to the next. Only the last Line in {@code appendTo} is wrapped again when more
+     * text is appended this way. You should usually use a {@link MarkupStream} instead of calling this directly,
+     * because it also handles tags that are split between two pieces of text.
+     *
+     * @param text     text with markup; any square-bracket or curly-brace tags should be complete
+     * @param appendTo a Layout that stores one or more Line objects, carrying color, style, chars, and size
+     * @param state    if non-null, the MarkupStream to read markup state from and write it back to
+     * @return appendTo, for chaining
+     */
+    public Layout markup(String text, Layout appendTo, MarkupStream state) {
+        final long startTime = TextraStats.ENABLED ? TimeUtils.nanoTime() : 0L;
+        // Appending only changes the last Line and any Lines after it, so only those are counted and snapped again.
+        final boolean appending = appendTo.font != null && appendTo.font.equals(this);
+        final int firstLine = appending ? appendTo.lines() - 1 : 0;
+        final int countBefore = appending ? appendTo.countGlyphs() - appendTo.getLine(firstLine).glyphs.size : 0;
+        markupInto(text, appendTo, state);
+        appendTo.recountGlyphs(firstLine, countBefore);
+        markModified(appendTo, firstLine);
+        if (!TextraStats.ENABLED) return appendTo;
+        TextraStats.markupCalls++;
+        TextraStats.markupChars += text.length();
+        TextraStats.markupNanos += TimeUtils.nanoTime() - startTime;
+        return appendTo;
+    }
+
+    private Layout markupInto(String text, Layout appendTo, MarkupStream state) {
         boolean capitalize = false, previousWasLetter = false,
                 capsLock = false, lowerCase = false, initial = true;
         int c, scale = 3, fontIndex = -1;
@@ -3060,14 +3742,29 @@ public class Font implements Disposable {
         long baseColor = Long.reverseBytes(NumberUtils.floatToIntBits(appendTo.getBaseColor())) & 0xFFFFFFFE00000000L;
         long color = baseColor;
         long current = color;
+        int kern = -1;
+        boolean resuming = state != null && state.started && this.equals(appendTo.font);
+        if (resuming) {
+            capitalize = state.capitalize;
+            previousWasLetter = state.previousWasLetter;
+            capsLock = state.capsLock;
+            lowerCase = state.lowerCase;
+            initial = state.initial;
+            scale = state.scale;
+            fontIndex = state.fontIndex;
+            font = state.currentFont == null ? this : state.currentFont;
+            color = state.color;
+            current = state.current;
+            kern = state.kern;
+        }
         if (appendTo.font == null || !appendTo.font.equals(this)) {
             appendTo.clear();
             appendTo.font(this);
         }
 //        appendTo.pushLine();
-        appendTo.peekLine().height = 0;
+        if (!resuming)
+            appendTo.peekLine().height = 0;
         float targetWidth = appendTo.getTargetWidth();
-        int kern = -1;
         for (int i = 0, n = text.length(); i < n; i++) {
             scaleX = font.scaleX * (scale + 1) * 0.25f;
 
@@ -3087,7 +3784,7 @@ public class Font implements Disposable {
                     else if (c == '=') eq = Math.min(eq, i);
                 }
                 char after = eq + 1 >= end ? '\u0000' : text.charAt(eq + 1);
-                if (start + 1 == end || "RESET".equalsIgnoreCase(safeSubstring(text, start + 1, end))) {
+                if (start + 1 == end || (end - start == 6 && text.regionMatches(true, start + 1, "RESET", 0, 5))) {
                     scale = 3;
                     font = this;
                     fontIndex = 0;
@@ -3114,7 +3811,7 @@ public class Font implements Disposable {
                             break;
                     }
                 } else if (fontChange >= 0 && family != null) {
-                    fontIndex = family.fontAliases.get(safeSubstring(text, fontChange + 1, end), -1);
+                    fontIndex = family.getIndex(text, fontChange + 1, end, -1);
                     if (fontIndex == -1) {
                         font = this;
                         fontIndex = 0;
@@ -3136,7 +3833,7 @@ public class Font implements Disposable {
                         scale = ((intFromDec(text, sizeChange + 1, end) - 24) / 25) & 15;
                     }
                 }
-                current = (current & 0xFFFFFFFFFF00FFFFL) | (scale - 3 & 15) << 20 | (fontIndex & 15) << 16;
+                current = withFontIndex((current & 0xFFFFFFFFFF0FFFFFL) | (scale - 3 & 15) << 20, fontIndex);
                 i--;
             } else if (text.charAt(i) == '[') {
 
@@ -3224,21 +3921,21 @@ public class Font implements Disposable {
                                 fontIndex = 0;
                                 break;
                             }
-                            fontIndex = family.fontAliases.get(safeSubstring(text, i + 1, i + len), 0);
-                            current = (current & 0xFFFFFFFFFFF0FFFFL) | (fontIndex & 15L) << 16;
-                            font = family.connected[fontIndex & 15];
+                            fontIndex = family.getIndex(text, i + 1, i + len, 0);
+                            current = withFontIndex(current, fontIndex);
+                            font = family.connected[fontIndex & 63];
                             if (font == null) font = this;
                             break;
                         case '|':
                             // attempt to look up a known Color name with a ColorLookup
-                            int lookupColor = colorLookup.getRgba(safeSubstring(text, i + 1, i + len)) & 0xFFFFFFFE;
+                            int lookupColor = colorLookup.getRgba(text, i + 1, i + len) & 0xFFFFFFFE;
                             if (lookupColor == 256) color = baseColor;
                             else color = (long) lookupColor << 32;
                             current = (current & ~COLOR_MASK) | color;
                             break;
                         default:
                             // attempt to look up a known Color name with a ColorLookup
-                            int gdxColor = colorLookup.getRgba(safeSubstring(text, i, i + len)) & 0xFFFFFFFE;
+                            int gdxColor = colorLookup.getRgba(text, i, i + len) & 0xFFFFFFFE;
                             if (gdxColor == 256) color = baseColor;
                             else color = (long) gdxColor << 32;
                             current = (current & ~COLOR_MASK) | color;
@@ -3253,7 +3950,8 @@ public class Font implements Disposable {
                     if(c == '+' && nameLookup != null) {
                         int len = text.indexOf(']', i) - i;
                         if (len >= 0) {
-                            c = nameLookup.get(safeSubstring(text, i + 1, i + len), '+');
+                            if (nameInterner == null) nameInterner = new StringInterner(1024);
+                            c = nameLookup.get(nameInterner.intern(text, i + 1, i + len), '+');
                             i += len;
                             scaleX = (scale + 1) * 0.25f * cellHeight / (font.mapping.get(c, font.defaultValue).xAdvance*1.25f);
                         }
@@ -3305,7 +4003,9 @@ public class Font implements Disposable {
                                 if (font.kerning == null) {
                                     for (int k = j + 1, e = 0; e < ellipsis.length(); k++, e++) {
                                         if (k < earlier.glyphs.size) {
-                                            change += xAdvance(font, scaleX, earlier.glyphs.get(k));
+                                            curr = earlier.glyphs.get(k);
+                                            final Font cf = familyFont(curr, font);
+                                            change += xAdvance(cf, glyphScaleX(cf, curr), curr);
                                         }
                                         changeNext += xAdvance(font, scaleX, current | ellipsis.charAt(e));
                                     }
@@ -3316,7 +4016,9 @@ public class Font implements Disposable {
                                         if (k < earlier.glyphs.size) {
                                             curr = earlier.glyphs.get(k);
                                             k2 = k2 << 16 | (char) curr;
-                                            change += xAdvance(font, scaleX, curr) + font.kerning.get(k2, 0) * scaleX * (1f + 0.5f * (-(curr & SUPERSCRIPT) >> 63));
+                                            final Font cf = familyFont(curr, font);
+                                            final float sx = glyphScaleX(cf, curr);
+                                            change += xAdvance(cf, sx, curr) + (cf.kerning == null ? 0 : cf.kerning.get(k2, 0)) * sx * (1f + 0.5f * (-(curr & SUPERSCRIPT) >> 63));
                                         }
                                         currE = current | ellipsis.charAt(e);
                                         k2e = k2e << 16 | (char) currE;
@@ -3328,6 +4030,7 @@ public class Font implements Disposable {
                                         earlier.glyphs.add(current | ellipsis.charAt(e));
                                     }
                                     earlier.width = earlier.width + changeNext;
+                                    if (state != null) state.store(capitalize, previousWasLetter, capsLock, lowerCase, initial, scale, fontIndex, font, color, current, kern);
                                     return appendTo;
                                 }
                                 if (earlier.width - change + changeNext < appendTo.getTargetWidth()) {
@@ -3336,6 +4039,7 @@ public class Font implements Disposable {
                                         earlier.glyphs.add(current | ellipsis.charAt(e));
                                     }
                                     earlier.width = earlier.width - change + changeNext;
+                                    if (state != null) state.store(capitalize, previousWasLetter, capsLock, lowerCase, initial, scale, fontIndex, font, color, current, kern);
                                     return appendTo;
                                 }
                             }
@@ -3374,14 +4078,16 @@ public class Font implements Disposable {
                                                 continue;
                                             }
 
-                                            float adv = xAdvance(font, scaleX, curr);
+                                            final Font cf = familyFont(curr, font);
+                                            final float sx = glyphScaleX(cf, curr);
+                                            float adv = xAdvance(cf, sx, curr);
                                             change += adv;
                                             if (--leading < 0) {
                                                 glyphBuffer.add(curr);
                                                 changeNext += adv;
                                                 if(appendTo.peekLine().glyphs.size == 1){
-                                                    float ox = font.mapping.get((char)curr, font.defaultValue).offsetX
-                                                            * scaleX * (1f + 0.5f * (-(current & SUPERSCRIPT) >> 63));
+                                                    float ox = cf.mapping.get((char)curr, cf.defaultValue).offsetX
+                                                            * sx * (1f + 0.5f * (-(current & SUPERSCRIPT) >> 63));
                                                     if(ox < 0) changeNext -= ox;
                                                     initial = false;
                                                 }
@@ -3411,15 +4117,17 @@ public class Font implements Disposable {
                                                 continue;
                                             }
                                             k2 = k2 << 16 | (char) curr;
-                                            float adv = xAdvance(font, scaleX, curr);
-                                            change += adv + font.kerning.get(k2, 0) * scaleX * (1f + 0.5f * (-(curr & SUPERSCRIPT) >> 63));
+                                            final Font cf = familyFont(curr, font);
+                                            final float sx = glyphScaleX(cf, curr);
+                                            float adv = xAdvance(cf, sx, curr);
+                                            change += adv + (cf.kerning == null ? 0 : cf.kerning.get(k2, 0)) * sx * (1f + 0.5f * (-(curr & SUPERSCRIPT) >> 63));
                                             if (--leading < 0) {
                                                 k3 = k3 << 16 | (char) curr;
-                                                changeNext += adv + font.kerning.get(k3, 0) * scaleX * (1f + 0.5f * (-(curr & SUPERSCRIPT) >> 63));
+                                                changeNext += adv + (cf.kerning == null ? 0 : cf.kerning.get(k3, 0)) * sx * (1f + 0.5f * (-(curr & SUPERSCRIPT) >> 63));
                                                 glyphBuffer.add(curr);
                                                 if(appendTo.peekLine().glyphs.size == 1){
-                                                    float ox = font.mapping.get((char)curr, font.defaultValue).offsetX
-                                                            * scaleX * (1f + 0.5f * (-(current & SUPERSCRIPT) >> 63));
+                                                    float ox = cf.mapping.get((char)curr, cf.defaultValue).offsetX
+                                                            * sx * (1f + 0.5f * (-(current & SUPERSCRIPT) >> 63));
                                                     if(ox < 0) changeNext -= ox;
                                                     initial = false;
                                                 }
@@ -3460,23 +4168,34 @@ public class Font implements Disposable {
                 } else {
                     previousWasLetter = false;
                 }
+                Font glyphFont = font;
+                long glyphCurrent = current;
+                if (fallbackIndices != null && ch != '\n' && !font.mapping.containsKey(ch)) {
+                    final int fallback = findFallback(ch);
+                    if (fallback >= 0) {
+                        glyphFont = family.connected[fallback];
+                        glyphCurrent = withFontIndex(current, fallback);
+                        scaleX = glyphFont.scaleX * (scale + 1) * 0.25f;
+                        appendTo.peekLine().height = Math.max(appendTo.peekLine().height, glyphFont.cellHeight * (scale + 1) * 0.25f);
+                    }
+                }
                 if(ch >= 0xE000 && ch < 0xF800){
-                    scaleX = (scale + 1) * 0.25f * cellHeight / (font.mapping.get(ch, font.defaultValue).xAdvance*1.25f);
+                    scaleX = (scale + 1) * 0.25f * cellHeight / (glyphFont.mapping.get(ch, glyphFont.defaultValue).xAdvance*1.25f);
                 }
                 float w;
-                if (font.kerning == null) {
-                    w = (appendTo.peekLine().width += xAdvance(font, scaleX, current | ch));
+                if (glyphFont.kerning == null) {
+                    w = (appendTo.peekLine().width += xAdvance(glyphFont, scaleX, glyphCurrent | ch));
                     if(initial){
-                        float ox = font.mapping.get(ch, font.defaultValue).offsetX
+                        float ox = glyphFont.mapping.get(ch, glyphFont.defaultValue).offsetX
                                 * scaleX;
                         if(ox < 0) w = (appendTo.peekLine().width -= ox);
                         initial = false;
                     }
                 } else {
                     kern = kern << 16 | ch;
-                    w = (appendTo.peekLine().width += xAdvance(font, scaleX, current | ch) + font.kerning.get(kern, 0) * scaleX * (1f + 0.5f * (-((current | ch) & SUPERSCRIPT) >> 63)));
+                    w = (appendTo.peekLine().width += xAdvance(glyphFont, scaleX, glyphCurrent | ch) + glyphFont.kerning.get(kern, 0) * scaleX * (1f + 0.5f * (-((glyphCurrent | ch) & SUPERSCRIPT) >> 63)));
                     if(initial){
-                        float ox = font.mapping.get(ch, font.defaultValue).offsetX
+                        float ox = glyphFont.mapping.get(ch, glyphFont.defaultValue).offsetX
                                 * scaleX * (1f + 0.5f * (-(current & SUPERSCRIPT) >> 63));
                         if(ox < 0) w = (appendTo.peekLine().width -= ox);
                         initial = false;
@@ -3484,10 +4203,10 @@ public class Font implements Disposable {
                 }
                 if (ch == '\n')
                 {
-                    appendTo.peekLine().height = Math.max(appendTo.peekLine().height, font.cellHeight * (scale + 1) * 0.25f);
+                    appendTo.peekLine().height = Math.max(appendTo.peekLine().height, glyphFont.cellHeight * (scale + 1) * 0.25f);
                     initial = true;
                 }
-                appendTo.add(current | ch);
+                appendTo.add(glyphCurrent | ch);
                 if ((targetWidth > 0 && w > targetWidth) || appendTo.atLimit) {
                     Line earlier = appendTo.peekLine();
                     Line later;
@@ -3522,7 +4241,9 @@ public class Font implements Disposable {
                             if (font.kerning == null) {
                                 for (int k = j + 1, e = 0; e < ellipsis.length(); k++, e++) {
                                     if (k < earlier.glyphs.size) {
-                                        change += xAdvance(font, scaleX, earlier.glyphs.get(k));
+                                        curr = earlier.glyphs.get(k);
+                                        final Font cf = familyFont(curr, font);
+                                        change += xAdvance(cf, glyphScaleX(cf, curr), curr);
                                     }
                                     changeNext += xAdvance(font, scaleX, current | ellipsis.charAt(e));
                                 }
@@ -3533,7 +4254,9 @@ public class Font implements Disposable {
                                     if (k < earlier.glyphs.size) {
                                         curr = earlier.glyphs.get(k);
                                         k2 = k2 << 16 | (char) curr;
-                                        change += xAdvance(font, scaleX, curr) + font.kerning.get(k2, 0) * scaleX * (1f + 0.5f * (-(curr & SUPERSCRIPT) >> 63));
+                                        final Font cf = familyFont(curr, font);
+                                        final float sx = glyphScaleX(cf, curr);
+                                        change += xAdvance(cf, sx, curr) + (cf.kerning == null ? 0 : cf.kerning.get(k2, 0)) * sx * (1f + 0.5f * (-(curr & SUPERSCRIPT) >> 63));
                                     }
                                     currE = current | ellipsis.charAt(e);
                                     k2e = k2e << 16 | (char) currE;
@@ -3545,6 +4268,7 @@ public class Font implements Disposable {
                                     earlier.glyphs.add(current | ellipsis.charAt(e));
                                 }
                                 earlier.width = earlier.width + changeNext;
+                                if (state != null) state.store(capitalize, previousWasLetter, capsLock, lowerCase, initial, scale, fontIndex, font, color, current, kern);
                                 return appendTo;
                             }
                             if (earlier.width - change + changeNext < appendTo.getTargetWidth()) {
@@ -3553,6 +4277,7 @@ public class Font implements Disposable {
                                     earlier.glyphs.add(current | ellipsis.charAt(e));
                                 }
                                 earlier.width = earlier.width - change + changeNext;
+                                if (state != null) state.store(capitalize, previousWasLetter, capsLock, lowerCase, initial, scale, fontIndex, font, color, current, kern);
                                 return appendTo;
                             }
                         }
@@ -3594,14 +4319,16 @@ public class Font implements Disposable {
                                             continue;
                                         }
 
-                                        float adv = xAdvance(font, scaleX, curr);
+                                        final Font cf = familyFont(curr, font);
+                                        final float sx = glyphScaleX(cf, curr);
+                                        float adv = xAdvance(cf, sx, curr);
                                         change += adv;
                                         if (--leading < 0) {
                                             glyphBuffer.add(curr);
                                             changeNext += adv;
                                             if(appendTo.peekLine().glyphs.size == 1){
-                                                float ox = font.mapping.get((char)curr, font.defaultValue).offsetX
-                                                        * scaleX * (1f + 0.5f * (-(current & SUPERSCRIPT) >> 63));
+                                                float ox = cf.mapping.get((char)curr, cf.defaultValue).offsetX
+                                                        * sx * (1f + 0.5f * (-(current & SUPERSCRIPT) >> 63));
                                                 if(ox < 0) changeNext -= ox;
                                                 initial = false;
                                             }
@@ -3631,15 +4358,17 @@ public class Font implements Disposable {
                                             continue;
                                         }
                                         k2 = k2 << 16 | (char) curr;
-                                        float adv = xAdvance(font, scaleX, curr);
-                                        change += adv + font.kerning.get(k2, 0) * scaleX * (1f + 0.5f * (-(curr & SUPERSCRIPT) >> 63));
+                                        final Font cf = familyFont(curr, font);
+                                        final float sx = glyphScaleX(cf, curr);
+                                        float adv = xAdvance(cf, sx, curr);
+                                        change += adv + (cf.kerning == null ? 0 : cf.kerning.get(k2, 0)) * sx * (1f + 0.5f * (-(curr & SUPERSCRIPT) >> 63));
                                         if (--leading < 0) {
                                             k3 = k3 << 16 | (char) curr;
-                                            changeNext += adv + font.kerning.get(k3, 0) * scaleX * (1f + 0.5f * (-(curr & SUPERSCRIPT) >> 63));
+                                            changeNext += adv + (cf.kerning == null ? 0 : cf.kerning.get(k3, 0)) * sx * (1f + 0.5f * (-(curr & SUPERSCRIPT) >> 63));
                                             glyphBuffer.add(curr);
                                             if(appendTo.peekLine().glyphs.size == 1){
-                                                float ox = font.mapping.get((char)curr, font.defaultValue).offsetX
-                                                        * scaleX * (1f + 0.5f * (-(current & SUPERSCRIPT) >> 63));
+                                                float ox = cf.mapping.get((char)curr, cf.defaultValue).offsetX
+                                                        * sx * (1f + 0.5f * (-(current & SUPERSCRIPT) >> 63));
                                                 if(ox < 0) changeNext -= ox;
                                                 initial = false;
                                             }
@@ -3653,7 +4382,7 @@ public class Font implements Disposable {
                                 later.width = changeNext;
                                 earlier.width -= change;
                                 later.glyphs.addAll(glyphBuffer);
-                                later.height = Math.max(later.height, font.cellHeight * (scale + 1) * 0.25f);
+                                later.height = Math.max(later.height, Math.max(font.cellHeight, glyphFont.cellHeight) * (scale + 1) * 0.25f);
                                 break;
                             }
                         }
@@ -3663,6 +4392,7 @@ public class Font implements Disposable {
                 }
             }
         }
+        if (state != null) state.store(capitalize, previousWasLetter, capsLock, lowerCase, initial, scale, fontIndex, font, color, current, kern);
         return appendTo;
     }
 
@@ -3878,8 +4608,8 @@ public class Font implements Disposable {
                             if (family == null) {
                                 break;
                             }
-                            int fontIndex = family.fontAliases.get(safeSubstring(markup, i + 1, i + len), 0);
-                            current = (current & 0xFFFFFFFFFFF0FFFFL) | (fontIndex & 15L) << 16;
+                            int fontIndex = family.getIndex(markup, i + 1, i + len, 0);
+                            current = withFontIndex(current, fontIndex);
                             break;
                         case '#':
                             if (len >= 7 && len < 9)
@@ -3892,14 +4622,14 @@ public class Font implements Disposable {
                             break;
                         case '|':
                             // attempt to look up a known Color name with a ColorLookup
-                            int lookupColor = colorLookup.getRgba(safeSubstring(markup, i + 1, i + len)) & 0xFFFFFFFE;
+                            int lookupColor = colorLookup.getRgba(markup, i + 1, i + len) & 0xFFFFFFFE;
                             if (lookupColor == 256) color = baseColor;
                             else color = (long) lookupColor << 32;
                             current = (current & ~COLOR_MASK) | color;
                             break;
                         default:
                             // attempt to look up a known Color name with a ColorLookup
-                            int gdxColor = colorLookup.getRgba(safeSubstring(markup, i, i + len)) & 0xFFFFFFFE;
+                            int gdxColor = colorLookup.getRgba(markup, i, i + len) & 0xFFFFFFFE;
                             if (gdxColor == 256) color = baseColor;
                             else color = (long) gdxColor << 32;
                             current = (current & ~COLOR_MASK) | color;
@@ -3911,6 +4641,22 @@ public class Font implements Disposable {
     }
 
     public Layout regenerateLayout(Layout changing) {
+        if (!TextraStats.ENABLED) {
+            regenerateInto(changing);
+            changing.recountGlyphs();
+            markModified(changing, 0);
+            return changing;
+        }
+        final long startTime = TimeUtils.nanoTime();
+        regenerateInto(changing);
+        markModified(changing, 0);
+        TextraStats.regenerateLayoutCalls++;
+        TextraStats.regenerateLayoutGlyphs += changing.recountGlyphs();
+        TextraStats.regenerateLayoutNanos += TimeUtils.nanoTime() - startTime;
+        return changing;
+    }
+
+    private Layout regenerateInto(Layout changing) {
         if (changing.font == null || !changing.font.equals(this)) {
             return changing;
         }
@@ -3936,7 +4682,7 @@ public class Font implements Disposable {
             float amt;
             for (int i = 0, n = glyphs.size; i < n; i++) {
                 long glyph = glyphs.get(i);
-                if (family != null) font = family.connected[(int) (glyph >>> 16 & 15)];
+                if (family != null) font = family.connected[fontIndex(glyph)];
                 if (font == null) font = this;
 
                 if ((glyph & 0xFFFFL) == '\n') {
@@ -4109,9 +4855,88 @@ public class Font implements Disposable {
      */
     public Font setFamily(FontFamily family) {
         this.family = family;
+        invalidateLayout();
+        if (fallbackIndices != null) {
+            fallbackIndices = null;
+            fallbackCache.clear();
+        }
+        return this;
+    }
+
+    /**
+     * Adds a Font to try when markup reaches a char that the current Font doesn't have a glyph for. Fallbacks are tried
+     * in the order they were added, and the first one with a glyph for the char is used for that glyph only. This is
+     * resolved once per char when markup is parsed, and cached (including chars that no fallback has), so drawing
+     * isn't slowed down at all; the fallback is stored in each glyph the same way as a {@code [@Name]} font switch.
+     * <br>
+     * Because of that, fallbacks are kept in this Font's {@link #family}; if family is null, this creates one with this
+     * Font as item 0. The fallback is added to the first empty slot of the family, unless it is already in the family.
+     * Calling {@link #setFamily(FontFamily)} removes all fallbacks. Fallbacks should use the same
+     * {@link DistanceFieldType} as this Font, since they are drawn with this Font's shader.
+     *
+     * @param fallback a Font to use for chars this Font doesn't have
+     * @return this, for chaining
+     * @throws IllegalStateException if the family has no empty slots left
+     */
+    public Font addFallback(Font fallback) {
+        if (family == null)
+            family = new FontFamily(new Font[]{this});
+        int index = -1;
+        for (int i = 0; i < family.connected.length; i++) {
+            if (family.connected[i] == fallback) {
+                index = i;
+                break;
+            }
+        }
+        if (index < 0) {
+            for (int i = 1; i < family.connected.length; i++) {
+                if (family.connected[i] == null) {
+                    family.connected[index = i] = fallback;
+                    break;
+                }
+            }
+            if (index < 0)
+                throw new IllegalStateException("The FontFamily for " + name + " has no room for another fallback.");
+        }
+        if (fallbackIndices == null)
+            fallbackIndices = new IntArray(4);
+        if (!fallbackIndices.contains(index))
+            fallbackIndices.add(index);
+        fallbackCache.clear();
         return this;
     }
 
+    /**
+     * Forgets which fallback Font was found for each char (and which chars had none). This is called automatically by
+     * {@link #addFallback(Font)}, but should be called if glyphs are added to this Font or its fallbacks afterwards.
+     */
+    public void clearFallbackCache() {
+        fallbackCache.clear();
+    }
+
+    /**
+     * Finds the first fallback Font, as added by {@link #addFallback(Font)}, that has a glyph for ch, and gets its index
+     * in {@link #family}. This only searches the fallbacks the first time it sees each char.
+     *
+     * @param ch a char that the current Font doesn't have
+     * @return the index in family of the first fallback Font that has ch, or -1 if none do
+     */
+    protected int findFallback(char ch) {
+        int found = fallbackCache.get(ch, -2);
+        if (found != -2) return found;
+        found = -1;
+        for (int i = 0, n = fallbackIndices.size; i < n; i++) {
+            final int index = fallbackIndices.get(i);
+            final Font fallback = family.connected[index];
+            if (fallback != null && fallback.mapping.containsKey(ch)) {
+                found = index;
+                break;
+            }
+        }
+        fallbackCache.put(ch, found);
+        return found;
+    }
+
     /**
      * Given the new width and height for a window, this attempts to adjust the {@link #actualCrispness} of an
      * SDF or MSDF font so that it will display cleanly at a different size. This uses this font's
@@ -4240,8 +5065,8 @@ public class Font implements Disposable {
     @Override
     public void dispose() {
         Layout.POOL.free(tempLayout);
-        if (shader != null)
-            shader.dispose();
+        releaseShader(shader);
+        shader = null;
     }
 
     @Override
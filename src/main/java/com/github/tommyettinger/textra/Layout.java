@@ -43,6 +43,12 @@ public class Layout implements Pool.Poolable {
     protected String ellipsis = null;
     protected float targetWidth = 0f;
     protected float baseColor = Color.WHITE_FLOAT_BITS;
+    /**
+     * The total number of glyphs in all {@link #lines}, including the newline glyph that ends each Line but the last.
+     * This is kept up-to-date by the methods here and by {@link Font}; if you change the glyphs in a Line directly,
+     * call {@link #recountGlyphs()} afterwards.
+     */
+    protected int glyphCount = 0;
 
     public Layout() {
         lines.add(Line.POOL.obtain());
@@ -65,6 +71,7 @@ public class Layout implements Pool.Poolable {
             Line.POOL.freeAll(lines);
             lines.clear();
             lines.add(Line.POOL.obtain());
+            glyphCount = 0;
         }
         return this;
     }
@@ -93,7 +100,8 @@ public class Layout implements Pool.Poolable {
             if ((glyph & 0xFFFFL) == 10L) {
                 pushLine();
             } else {
-                lines.peek().glyphs.add(glyph);
+                lines.peek().modified().glyphs.add(glyph);
+                glyphCount++;
             }
         }
 
@@ -104,9 +112,52 @@ public class Layout implements Pool.Poolable {
         Line.POOL.freeAll(lines);
         lines.clear();
         lines.add(Line.POOL.obtain());
+        glyphCount = 0;
         return this;
     }
 
+    /**
+     * Gets the total number of glyphs in all Lines of this Layout, including the newline that ends each Line except the
+     * last. This takes constant time, because the count is kept up-to-date as glyphs are added.
+     *
+     * @return the total number of glyphs in this Layout
+     */
+    public int countGlyphs() {
+        return glyphCount;
+    }
+
+    /**
+     * Counts the glyphs in all Lines of this Layout again, which is only needed if a Line's {@link Line#glyphs} were
+     * changed directly instead of through this Layout or {@link Font}. This takes time proportional to the number of
+     * lines; {@link #countGlyphs()} can be used afterwards to get the same count in constant time.
+     *
+     * @return the total number of glyphs in this Layout
+     */
+    public int recountGlyphs() {
+        int count = 0;
+        for (int i = 0, n = lines.size; i < n; i++) {
+            count += lines.get(i).glyphs.size;
+        }
+        return glyphCount = count;
+    }
+
+    /**
+     * Counts the glyphs in the Lines from {@code firstLine} onward again, and adds {@code countBefore} for the Lines
+     * before it. This is used by {@link Font} after appending to the last Line, so the cost only depends on how many
+     * Lines were changed, not on how many this holds.
+     *
+     * @param firstLine   the index of the first Line that may have changed
+     * @param countBefore the total number of glyphs in all Lines before firstLine
+     * @return the total number of glyphs in this Layout
+     */
+    public int recountGlyphs(int firstLine, int countBefore) {
+        int count = countBefore;
+        for (int i = Math.max(firstLine, 0), n = lines.size; i < n; i++) {
+            count += lines.get(i).glyphs.size;
+        }
+        return glyphCount = count;
+    }
+
     public float getWidth() {
         float w = 0;
         for (int i = 0, n = lines.size; i < n; i++) {
@@ -149,7 +200,8 @@ public class Layout implements Pool.Poolable {
         }
 
         Line line = Line.POOL.obtain(), prev = lines.peek();
-        prev.glyphs.add('\n');
+        prev.modified().glyphs.add('\n');
+        glyphCount++;
         line.height = 0;
         lines.add(line);
         return line;
@@ -162,7 +214,8 @@ public class Layout implements Pool.Poolable {
         }
         if (index < 0 || index >= maxLines) return null;
         Line line = Line.POOL.obtain(), prev = lines.get(index);
-        prev.glyphs.add('\n');
+        prev.modified().glyphs.add('\n');
+        glyphCount++;
         line.height = prev.height;
         lines.insert(index + 1, line);
         return line;
@@ -268,6 +321,7 @@ public class Layout implements Pool.Poolable {
         Line.POOL.freeAll(lines);
         lines.clear();
         lines.add(Line.POOL.obtain());
+        glyphCount = 0;
     }
 
     /**
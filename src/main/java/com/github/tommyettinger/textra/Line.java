@@ -16,6 +16,7 @@
 
 package com.github.tommyettinger.textra;
 
+import com.badlogic.gdx.utils.FloatArray;
 import com.badlogic.gdx.utils.LongArray;
 import com.badlogic.gdx.utils.Pool;
 
@@ -36,6 +37,25 @@ public class Line implements Pool.Poolable {
 
     public final LongArray glyphs;
     public float width, height;
+    /**
+     * If non-null and the same size as {@link #glyphs}, the rounded x position of each glyph relative to the start of
+     * this Line, as stored by {@link Font#snapGlyphOrigins(Line)} when {@link Font#integerLayout} is enabled.
+     */
+    public FloatArray origins;
+    /**
+     * Incremented whenever {@link #glyphs} is changed by this Line, {@link Layout}, or {@link Font}. If you change
+     * {@link #glyphs} directly, call {@link #modified()} afterwards so {@link #origins} are calculated again.
+     */
+    public int modCount;
+    /**
+     * The {@link #modCount} this Line had when {@link #origins} were stored by {@link Font#snapGlyphOrigins(Line)}.
+     */
+    public int originsModCount = -1;
+    /**
+     * The Font layout epoch when {@link #origins} were stored; if Font metrics changed since then, the origins are
+     * calculated again when this is drawn. See {@link Font#invalidateLayout()}.
+     */
+    public int originsEpoch;
 
     public Line() {
         glyphs = new LongArray(16);
@@ -45,6 +65,17 @@ public class Line implements Pool.Poolable {
         glyphs = new LongArray(capacity);
     }
 
+    /**
+     * Marks this Line as changed, so that {@link #origins} are calculated again before they are next drawn. Call this
+     * after changing {@link #glyphs} directly.
+     *
+     * @return this, for chaining
+     */
+    public Line modified() {
+        modCount++;
+        return this;
+    }
+
     public Line size(float width, float height) {
         this.width = width;
         this.height = height;
@@ -52,11 +83,14 @@ public class Line implements Pool.Poolable {
     }
 
     /**
-     * Resets the object for reuse. This clears {@link #glyphs}, rather than nulling it. The sizes are set to 0.
+     * Resets the object for reuse. This clears {@link #glyphs} and {@link #origins}, rather than nulling them. The
+     * sizes are set to 0.
      */
     @Override
     public void reset() {
         glyphs.clear();
+        if (origins != null) origins.clear();
+        modCount++;
         width = 0;
         height = 0;
     }
@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2021-2022 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.tommyettinger.textra;
+
+/**
+ * Allows text with markup to be appended to a {@link Layout} in pieces as it arrives, such as for a chat window or log,
+ * instead of needing the whole String at once for {@link Font#markup(String, Layout)}. The color, style, scale, font,
+ * and case-changing modes that markup tags set carry over from one piece to the next, and a tag that is split between
+ * two pieces (such as {@code "[#FF"} followed by {@code "0000]red"}) is held back until it is complete. Only the last
+ * Line in the Layout is wrapped again when text is appended.
+ * <br>
+ * Typical usage creates one MarkupStream per Layout, calls {@link #append(CharSequence)} whenever text arrives, and
+ * calls {@link #flush()} if any held-back partial tag should be processed as-is. Call {@link #reset()} if the Layout is
+ * cleared or reused for unrelated text.
+ */
+public class MarkupStream {
+    protected Font font;
+    protected Layout layout;
+    protected final StringBuilder pending = new StringBuilder(16);
+
+    // markup state that Font#markup(String, Layout, MarkupStream) reads and writes.
+    boolean started;
+    boolean capitalize, previousWasLetter, capsLock, lowerCase, initial;
+    int scale, fontIndex, kern;
+    Font currentFont;
+    long color, current;
+
+    /**
+     * Creates a MarkupStream that will use the given Font to append to the given Layout.
+     * @param font the Font to process markup with; if the Layout uses a different Font, it will be cleared
+     * @param layout the Layout to append to
+     */
+    public MarkupStream(Font font, Layout layout) {
+        this.font = font;
+        this.layout = layout;
+        reset();
+    }
+
+    public Font getFont() {
+        return font;
+    }
+
+    public Layout getLayout() {
+        return layout;
+    }
+
+    /**
+     * Appends the given piece of text with markup to the Layout. Any markup tags that were opened by earlier pieces
+     * still apply. If this piece ends partway through a square-bracket or curly-brace tag, that partial tag is held
+     * until the rest of it arrives in a later call (or until {@link #flush()} is called).
+     * @param text a piece of text that may contain markup
+     * @return the Layout this appends to, for chaining
+     */
+    public Layout append(CharSequence text) {
+        pending.append(text);
+        int cut = completeLength(pending);
+        if (cut > 0) {
+            String ready = pending.substring(0, cut);
+            pending.delete(0, cut);
+            font.markup(ready, layout, this);
+        }
+        return layout;
+    }
+
+    /**
+     * Processes any partial markup tag that was being held back, as if no more text will be appended to it.
+     * @return the Layout this appends to, for chaining
+     */
+    public Layout flush() {
+        if (pending.length() > 0) {
+            String ready = pending.toString();
+            pending.setLength(0);
+            font.markup(ready, layout, this);
+        }
+        return layout;
+    }
+
+    /**
+     * Forgets any held-back partial tag and sets all markup state back to its defaults, so the next appended text is
+     * treated as the start of a new markup String. This does not clear the Layout.
+     */
+    public void reset() {
+        pending.setLength(0);
+        started = false;
+        capitalize = false;
+        previousWasLetter = false;
+        capsLock = false;
+        lowerCase = false;
+        initial = true;
+        scale = 3;
+        fontIndex = -1;
+        kern = -1;
+        currentFont = null;
+        color = 0L;
+        current = 0L;
+    }
+
+    /**
+     * Called by {@link Font#markup(String, Layout, MarkupStream)} when it finishes, so the next piece can resume.
+     */
+    void store(boolean capitalize, boolean previousWasLetter, boolean capsLock, boolean lowerCase, boolean initial,
+               int scale, int fontIndex, Font currentFont, long color, long current, int kern) {
+        this.started = true;
+        this.capitalize = capitalize;
+        this.previousWasLetter = previousWasLetter;
+        this.capsLock = capsLock;
+        this.lowerCase = lowerCase;
+        this.initial = initial;
+        this.scale = scale;
+        this.fontIndex = fontIndex;
+        this.currentFont = currentFont;
+        this.color = color;
+        this.current = current;
+        this.kern = kern;
+    }
+
+    /**
+     * Finds how many chars at the start of {@code text} can be processed without splitting a markup tag.
+     * @param text text with markup that may end partway through a tag
+     * @return the index of the start of an incomplete tag at the end of text, or the length of text if there is none
+     */
+    private static int completeLength(CharSequence text) {
+        for (int i = 0, n = text.length(); i < n; i++) {
+            char c = text.charAt(i);
+            if (c == '[') {
+                if (i + 1 == n) return i;
+                if (text.charAt(i + 1) == '[') {
+                    ++i;
+                    continue;
+                }
+                int close = indexOf(text, ']', i + 1);
+                if (close < 0) return i;
+                i = close;
+            } else if (c == '{') {
+                if (i + 1 == n) return i;
+                if (text.charAt(i + 1) == '{') continue;
+                int close = indexOf(text, '}', i + 1);
+                if (close < 0) return i;
+                i = close;
+            }
+        }
+        return text.length();
+    }
+
+    private static int indexOf(CharSequence text, char search, int from) {
+        for (int i = from, n = text.length(); i < n; i++) {
+            if (text.charAt(i) == search) return i;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,366 @@
+/*
+ * Copyright (c) 2021-2022 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.tommyettinger.textra;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.TextureData;
+import com.badlogic.gdx.graphics.glutils.FileTextureData;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * A Texture for one page of a Font that doesn't decode or upload its image until it is needed. Until then, it reports
+ * the width and height of the image (read from the PNG header, which is all that is read when this is created), so
+ * {@link Font.GlyphRegion}s can be made for it as usual, but only a 1x1 placeholder is on the GPU. The image is
+ * decoded and uploaded by {@link #ensureResident()}, which Font calls when it first draws something on this page.
+ * <br>
+ * Decoding is the slow part of loading a page. {@link #prepare()} only decodes, without touching OpenGL, so an app
+ * that has threads can call it from a loading thread for each page it expects to need; the GPU upload still happens
+ * on the render thread, on first draw. On platforms without threads (GWT), this still spreads the loading cost out
+ * over the first frames that actually use each page, instead of paying it for every page of every Font at startup.
+ * <br>
+ * Fonts with very many pages, such as CJK fonts, may only ever need a few of them. If {@link #VRAM_BUDGET} is more
+ * than 0, loading a page first evicts the least-recently-drawn pages that weren't drawn in the current frame, until the
+ * new page fits in the budget; an evicted page goes back to its placeholder, and is loaded again if it is drawn again.
+ * Pages are counted in {@link TextraStats#pageLoads} and {@link TextraStats#pageEvictions} when those are enabled.
+ * <br>
+ * These are made by Font when {@link Font#DEFER_PAGE_LOADING} is true; see {@link #create(FileHandle)}.
+ */
+public class PageTexture extends Texture {
+    /**
+     * The most bytes of GPU memory that loaded PageTextures should use, or 0 (the default) for no limit. This is only
+     * an estimate from each image's size and pixel format. Pages that were drawn in the current frame are never
+     * evicted, so this can be exceeded if one frame draws more pages than fit.
+     */
+    public static long VRAM_BUDGET = 0L;
+    /**
+     * Every PageTexture that is currently loaded, in no particular order.
+     */
+    private static final Array<PageTexture> RESIDENT = new Array<>(false, 16, PageTexture.class);
+    private static long residentBytes = 0L;
+
+    public final FileHandle file;
+    private final int pageWidth, pageHeight;
+    private volatile FileTextureData decoded;
+    private boolean resident;
+    private boolean disposed;
+    private long bytes;
+    private long lastDrawnFrame;
+
+    /**
+     * Creates a PageTexture that will load file when needed. The given size must match the image in file.
+     *
+     * @param file   an image file, typically a PNG
+     * @param width  the width of the image in file
+     * @param height the height of the image in file
+     */
+    public PageTexture(FileHandle file, int width, int height) {
+        super(new PlaceholderData(width, height));
+        this.file = file;
+        this.pageWidth = width;
+        this.pageHeight = height;
+    }
+
+    /**
+     * Creates a PageTexture for file if it is a PNG whose size can be read from its header, or otherwise an ordinary
+     * Texture that is loaded immediately.
+     *
+     * @param file an image file
+     * @return a PageTexture if file is a PNG, or a Texture otherwise
+     */
+    public static Texture create(FileHandle file) {
+        final int[] size = readPngSize(file);
+        if (size == null) return new Texture(file);
+        return new PageTexture(file, size[0], size[1]);
+    }
+
+    /**
+     * Reads the width and height from the IHDR chunk of a PNG file, without decoding the image.
+     *
+     * @param file a file that may be a PNG
+     * @return an int array with width then height, or null if file isn't a PNG or can't be read
+     */
+    public static int[] readPngSize(FileHandle file) {
+        final byte[] header = new byte[24];
+        InputStream in = null;
+        try {
+            in = file.read();
+            int read = 0;
+            while (read < 24) {
+                int r = in.read(header, read, 24 - read);
+                if (r < 0) return null;
+                read += r;
+            }
+        } catch (GdxRuntimeException | IOException e) {
+            return null;
+        } finally {
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+        // The PNG signature, followed by the length and name of the IHDR chunk, which must come first.
+        if ((header[0] & 0xFF) != 0x89 || header[1] != 'P' || header[2] != 'N' || header[3] != 'G'
+                || header[12] != 'I' || header[13] != 'H' || header[14] != 'D' || header[15] != 'R')
+            return null;
+        return new int[]{readInt(header, 16), readInt(header, 20)};
+    }
+
+    private static int readInt(byte[] bytes, int offset) {
+        return (bytes[offset] & 0xFF) << 24 | (bytes[offset + 1] & 0xFF) << 16
+                | (bytes[offset + 2] & 0xFF) << 8 | (bytes[offset + 3] & 0xFF);
+    }
+
+    /**
+     * Decodes the image for this page, if it hasn't been decoded or uploaded yet, but doesn't upload it. This doesn't
+     * use OpenGL, so it can be called from a thread other than the render thread. If the page is loaded by
+     * {@link #ensureResident()} while this is decoding, or this page is disposed, the decoded image is discarded.
+     */
+    public void prepare() {
+        synchronized (this) {
+            if (resident || decoded != null) return;
+        }
+        // Decoding is slow, so it happens outside the lock; whatever state the page is in afterwards wins.
+        FileTextureData data = new FileTextureData(file, null, null, false);
+        data.prepare();
+        synchronized (this) {
+            if (resident || decoded != null || disposed) {
+                discard(data);
+                return;
+            }
+            decoded = data;
+        }
+    }
+
+    /**
+     * Frees the Pixmap that data decoded, if it still holds one.
+     */
+    private static void discard(FileTextureData data) {
+        if (data != null && data.isPrepared()) {
+            Pixmap pixmap = data.consumePixmap();
+            if (pixmap != null && data.disposePixmap()) pixmap.dispose();
+        }
+    }
+
+    /**
+     * @return true if the image for this page has been decoded (by {@link #prepare()}) or uploaded
+     */
+    public boolean isPrepared() {
+        return resident || decoded != null;
+    }
+
+    /**
+     * @return true if the image for this page is on the GPU, rather than a placeholder
+     */
+    public boolean isResident() {
+        return resident;
+    }
+
+    /**
+     * Decodes (if {@link #prepare()} hasn't already) and uploads the image for this page, if it isn't already on the
+     * GPU, and marks this page as drawn in the current frame. This must be called on the render thread. Font calls
+     * this before drawing anything on this page. If {@link #VRAM_BUDGET} is set, this may evict other pages first.
+     */
+    public void ensureResident() {
+        lastDrawnFrame = Gdx.graphics.getFrameId();
+        if (resident) return;
+        if (VRAM_BUDGET > 0L)
+            evictIdle(VRAM_BUDGET - 4L * pageWidth * pageHeight);
+        FileTextureData data;
+        synchronized (this) {
+            data = decoded;
+            decoded = null;
+            // From here on, prepare() on another thread discards what it decodes instead of keeping it.
+            resident = true;
+        }
+        if (data == null) data = new FileTextureData(file, null, null, false);
+        try {
+            load(data);
+            if (getWidth() != pageWidth || getHeight() != pageHeight)
+                throw new GdxRuntimeException("Page image " + file + " is " + getWidth() + "x" + getHeight()
+                        + ", but was expected to be " + pageWidth + "x" + pageHeight);
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                resident = false;
+            }
+            throw e;
+        }
+        bytes = (long) pageWidth * pageHeight * bytesPerPixel(data.getFormat());
+        residentBytes += bytes;
+        RESIDENT.add(this);
+        if (TextraStats.ENABLED) TextraStats.pageLoads++;
+    }
+
+    /**
+     * Replaces the image for this page on the GPU with the placeholder, freeing its memory. It will be loaded again the
+     * next time it is drawn. Does nothing if this page isn't loaded.
+     */
+    public void evict() {
+        if (!resident) return;
+        load(new PlaceholderData(pageWidth, pageHeight));
+        synchronized (this) {
+            resident = false;
+        }
+        residentBytes -= bytes;
+        bytes = 0L;
+        RESIDENT.removeValue(this, true);
+        if (TextraStats.ENABLED) TextraStats.pageEvictions++;
+    }
+
+    /**
+     * Evicts loaded pages that weren't drawn in the current frame, least-recently-drawn first, until at most
+     * {@code maxBytes} of GPU memory is used by loaded pages (or no more pages can be evicted). Passing 0 evicts every
+     * page that isn't in use this frame.
+     *
+     * @param maxBytes how many bytes of GPU memory loaded pages may use after this
+     */
+    public static void evictIdle(long maxBytes) {
+        final long frame = Gdx.graphics.getFrameId();
+        while (residentBytes > maxBytes) {
+            PageTexture oldest = null;
+            final PageTexture[] items = RESIDENT.items;
+            for (int i = 0, n = RESIDENT.size; i < n; i++) {
+                PageTexture page = items[i];
+                if (page.lastDrawnFrame < frame && (oldest == null || page.lastDrawnFrame < oldest.lastDrawnFrame))
+                    oldest = page;
+            }
+            if (oldest == null) return;
+            oldest.evict();
+        }
+    }
+
+    /**
+     * @return the estimated bytes of GPU memory used by every loaded PageTexture
+     */
+    public static long getResidentBytes() {
+        return residentBytes;
+    }
+
+    /**
+     * @return how many PageTextures are currently loaded
+     */
+    public static int getResidentCount() {
+        return RESIDENT.size;
+    }
+
+    private static int bytesPerPixel(Pixmap.Format format) {
+        switch (format) {
+            case Alpha:
+            case Intensity:
+                return 1;
+            case LuminanceAlpha:
+            case RGB565:
+            case RGBA4444:
+                return 2;
+            case RGB888:
+                return 3;
+            default:
+                return 4;
+        }
+    }
+
+    @Override
+    public void dispose() {
+        if (resident) {
+            residentBytes -= bytes;
+            bytes = 0L;
+            RESIDENT.removeValue(this, true);
+        }
+        super.dispose();
+        synchronized (this) {
+            resident = false;
+            disposed = true;
+            // A page that was prepared but never drawn still holds its decoded Pixmap.
+            discard(decoded);
+            decoded = null;
+        }
+    }
+
+    /**
+     * Stands in for a page that hasn't been loaded; it reports the page's size, but only uploads one transparent pixel.
+     */
+    static class PlaceholderData implements TextureData {
+        private final int width, height;
+
+        PlaceholderData(int width, int height) {
+            this.width = width;
+            this.height = height;
+        }
+
+        @Override
+        public TextureDataType getType() {
+            return TextureDataType.Pixmap;
+        }
+
+        @Override
+        public boolean isPrepared() {
+            return true;
+        }
+
+        @Override
+        public void prepare() {
+        }
+
+        @Override
+        public Pixmap consumePixmap() {
+            return new Pixmap(1, 1, Pixmap.Format.RGBA8888);
+        }
+
+        @Override
+        public boolean disposePixmap() {
+            return true;
+        }
+
+        @Override
+        public void consumeCustomData(int target) {
+            throw new GdxRuntimeException("PlaceholderData is not custom data.");
+        }
+
+        @Override
+        public int getWidth() {
+            return width;
+        }
+
+        @Override
+        public int getHeight() {
+            return height;
+        }
+
+        @Override
+        public Pixmap.Format getFormat() {
+            return Pixmap.Format.RGBA8888;
+        }
+
+        @Override
+        public boolean useMipMaps() {
+            return false;
+        }
+
+        @Override
+        public boolean isManaged() {
+            return true;
+        }
+    }
+}
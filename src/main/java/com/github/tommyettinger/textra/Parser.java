@@ -19,9 +19,6 @@ package com.github.tommyettinger.textra;
 import com.badlogic.gdx.graphics.Colors;
 import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.utils.Array;
-import com.badlogic.gdx.utils.reflect.ClassReflection;
-import com.badlogic.gdx.utils.reflect.Constructor;
-import com.badlogic.gdx.utils.reflect.ReflectionException;
 import regexodus.Matcher;
 import regexodus.Pattern;
 import regexodus.REFlags;
@@ -59,7 +56,8 @@ class Parser {
             RESET_REPLACEMENT = getResetReplacement();
         }
 
-        // Remove any previous entries
+        // Remove any previous tokens, returning effects that never started to their pools
+        label.timeline.clear();
         label.tokenEntries.clear();
 
         // Parse all tokens with text replacements, namely color and var.
@@ -73,9 +71,11 @@ class Parser {
 
         label.setText(label.getIntermediateText().toString(), false, false);
 
-        // Sort token entries
+        // Sort token entries, then store them in the order they will be reached
         label.tokenEntries.sort();
 //        label.tokenEntries.reverse();
+        label.timeline.set(label.tokenEntries);
+        label.tokenEntries.clear();
     }
 
     /**
@@ -228,6 +228,7 @@ class Parser {
             float floatValue = 0;
             String stringValue = null;
             Effect effect = null;
+            EffectFactory factory = null;
 
             switch (tokenCategory) {
                 case WAIT: {
@@ -267,24 +268,14 @@ class Parser {
                     break;
                 }
                 case EFFECT_START: {
-                    Class<? extends Effect> clazz = TypingConfig.EFFECT_START_TOKENS.get(tokenName.toUpperCase());
-                    try {
-                        if (clazz != null) {
-                            Constructor constructor = ClassReflection.getConstructors(clazz)[0];
-                            int constructorParamCount = constructor.getParameterTypes().length;
-                            if (constructorParamCount >= 2) {
-                                effect = (Effect) constructor.newInstance(label, params);
-                            } else {
-                                effect = (Effect) constructor.newInstance(label);
-                            }
-                        }
-                    } catch (ReflectionException e) {
-                        String message = "Failed to initialize " + tokenName + " effect token. Make sure the associated class (" + clazz + ") has only one constructor with TypingLabel as first parameter and optionally String[] as second.";
-                        throw new IllegalStateException(message, e);
+                    factory = TypingConfig.EFFECT_START_TOKENS.get(tokenName);
+                    if (factory != null) {
+                        effect = TypingConfig.obtainEffect(factory, label, params);
                     }
                     break;
                 }
                 case EFFECT_END: {
+                    factory = TypingConfig.EFFECT_END_TOKENS.get(tokenName);
                     break;
                 }
             }
@@ -292,6 +283,8 @@ class Parser {
             // Register token
             TokenEntry entry = new TokenEntry(tokenName, tokenCategory, index + indexOffset, m.end(0), floatValue, stringValue);
             entry.effect = effect;
+            entry.factory = factory;
+            if (tokenCategory == TokenCategory.EFFECT_START) entry.params = params;
             label.tokenEntries.add(entry);
 
             // Set new text without tokens
@@ -355,7 +348,7 @@ class Parser {
         if (str != null) {
 
             // Try to parse named color
-            int namedColor = label.font.getColorLookup().getRgba(str);
+            int namedColor = label.font.getColorLookup().getRgba(str, 0, str.length());
             if (namedColor != 256) {
                 return namedColor;
             }
@@ -363,9 +356,10 @@ class Parser {
             // Try to parse hex
             if (str.length() >= 6) {
                 try {
-                    if (str.startsWith("#")) str = str.substring(1);
-                    if (str.length() >= 8) return Font.intFromHex(str, 0, 8);
-                    if (str.length() >= 6) return Font.intFromHex(str, 0, 6) << 8 | 0xFF;
+                    final int start = str.startsWith("#") ? 1 : 0;
+                    final int len = str.length() - start;
+                    if (len >= 8) return Font.intFromHex(str, start, start + 8);
+                    if (len >= 6) return Font.intFromHex(str, start, start + 6) << 8 | 0xFF;
                 } catch (NumberFormatException ignored) {
                 }
             }
@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2021-2022 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.tommyettinger.textra;
+
+/**
+ * Optional counters that track how much work text rendering and layout did, so you can answer questions like "how many
+ * glyphs and quads did text cost this frame?" without an external profiler. Counting is only done if {@link #ENABLED}
+ * is true, which requires the system property {@code textratypist.stats} to be {@code "true"} when this class is
+ * loaded (such as by passing {@code -Dtextratypist.stats=true} to the JVM). Because ENABLED is a static final field,
+ * the JIT compiler removes the counting code entirely when it is false, so leaving the hooks in costs nothing.
+ * <br>
+ * The counters are plain static fields that accumulate until {@link #reset()} is called; typically you would read
+ * them (or call {@link #appendTo(StringBuilder)}) at the end of a frame, then call reset() before the next one. Time
+ * is measured with {@link com.badlogic.gdx.utils.TimeUtils#nanoTime()}, in nanoseconds. This is not thread-safe,
+ * which matches how libGDX rendering code is normally used.
+ */
+public final class TextraStats {
+    /**
+     * If true, the counters here are updated by {@link Font}, {@link TypingLabel}, and related classes; if false, they
+     * are never touched. This is read once from the system property {@code textratypist.stats}.
+     */
+    public static final boolean ENABLED = "true".equalsIgnoreCase(System.getProperty("textratypist.stats", "false"));
+
+    /**
+     * How many times {@link Font#drawGlyph(com.badlogic.gdx.graphics.g2d.Batch, long, float, float, float, float, float)}
+     * was called, which is one call per glyph drawn.
+     */
+    public static int glyphsDrawn;
+    /**
+     * How many quads (textured rectangles) were submitted to a Batch; bold, underline, strikethrough, box drawing,
+     * and block elements each use more than one quad per glyph.
+     */
+    public static int quadsDrawn;
+    /**
+     * How many times a SpriteBatch had to flush (issue a render call) while drawing a Line of glyphs. This is only
+     * counted when the Batch is a {@link com.badlogic.gdx.graphics.g2d.SpriteBatch}.
+     */
+    public static int batchFlushes;
+    /**
+     * How many times {@link Font#drawBlocks(com.badlogic.gdx.graphics.g2d.Batch, char, int[][], float, float)} was
+     * called.
+     */
+    public static int drawBlocksCalls;
+    /**
+     * How many times a sequence of blocks was drawn for a box drawing char, underline, or strikethrough.
+     */
+    public static int blockSequenceCalls;
+    /**
+     * How many times {@link Font#markup(String, Layout, MarkupStream)} (or any overload that calls it) was called.
+     */
+    public static int markupCalls;
+    /**
+     * How many chars of markup text were processed by {@link #markupCalls}.
+     */
+    public static int markupChars;
+    /**
+     * How long, in nanoseconds, was spent in {@link #markupCalls}.
+     */
+    public static long markupNanos;
+    /**
+     * How many times {@link Font#regenerateLayout(Layout)} was called.
+     */
+    public static int regenerateLayoutCalls;
+    /**
+     * How many glyphs were processed by {@link #regenerateLayoutCalls}.
+     */
+    public static int regenerateLayoutGlyphs;
+    /**
+     * How long, in nanoseconds, was spent in {@link #regenerateLayoutCalls}.
+     */
+    public static long regenerateLayoutNanos;
+    /**
+     * How many times {@link Font#calculateSize(Line)} was called, including calls made for each Line in a Layout.
+     */
+    public static int calculateSizeCalls;
+    /**
+     * How many glyphs were measured by {@link #calculateSizeCalls}.
+     */
+    public static int calculateSizeGlyphs;
+    /**
+     * How long, in nanoseconds, was spent in {@link Font#calculateSize(Layout)}.
+     */
+    public static long calculateSizeNanos;
+    /**
+     * How many times {@link TypingLabel#act(float)} was called.
+     */
+    public static int actCalls;
+    /**
+     * How many glyphs were in the working Layouts of the TypingLabels counted by {@link #actCalls}.
+     */
+    public static int actGlyphs;
+    /**
+     * How long, in nanoseconds, was spent in {@link #actCalls}.
+     */
+    public static long actNanos;
+    /**
+     * How many {@link PageTexture}s were decoded and uploaded to the GPU.
+     */
+    public static int pageLoads;
+    /**
+     * How many {@link PageTexture}s were evicted from the GPU, either to stay within
+     * {@link PageTexture#VRAM_BUDGET} or by {@link PageTexture#evict()}.
+     */
+    public static int pageEvictions;
+
+    private TextraStats() {
+    }
+
+    /**
+     * Sets every counter back to 0; typically called once per frame.
+     */
+    public static void reset() {
+        glyphsDrawn = 0;
+        quadsDrawn = 0;
+        batchFlushes = 0;
+        drawBlocksCalls = 0;
+        blockSequenceCalls = 0;
+        markupCalls = 0;
+        markupChars = 0;
+        markupNanos = 0L;
+        regenerateLayoutCalls = 0;
+        regenerateLayoutGlyphs = 0;
+        regenerateLayoutNanos = 0L;
+        calculateSizeCalls = 0;
+        calculateSizeGlyphs = 0;
+        calculateSizeNanos = 0L;
+        actCalls = 0;
+        actGlyphs = 0;
+        actNanos = 0L;
+        pageLoads = 0;
+        pageEvictions = 0;
+    }
+
+    /**
+     * Appends a human-readable summary of every counter to the given StringBuilder.
+     *
+     * @param sb a non-null StringBuilder that will be modified
+     * @return sb, for chaining
+     */
+    public static StringBuilder appendTo(StringBuilder sb) {
+        sb.append("glyphs=").append(glyphsDrawn)
+                .append(" quads=").append(quadsDrawn)
+                .append(" flushes=").append(batchFlushes)
+                .append(" drawBlocks=").append(drawBlocksCalls)
+                .append(" blockSequences=").append(blockSequenceCalls)
+                .append(" markup=").append(markupCalls).append('/').append(markupChars).append("ch/").append(markupNanos).append("ns")
+                .append(" regenerate=").append(regenerateLayoutCalls).append('/').append(regenerateLayoutGlyphs).append("g/").append(regenerateLayoutNanos).append("ns")
+                .append(" calculateSize=").append(calculateSizeCalls).append('/').append(calculateSizeGlyphs).append("g/").append(calculateSizeNanos).append("ns")
+                .append(" act=").append(actCalls).append('/').append(actGlyphs).append("g/").append(actNanos).append("ns")
+                .append(" pages=").append(pageLoads).append(" loaded/").append(pageEvictions).append(" evicted");
+        return sb;
+    }
+
+    /**
+     * @return a human-readable summary of every counter, as by {@link #appendTo(StringBuilder)}
+     */
+    public static String summary() {
+        return appendTo(new StringBuilder(256)).toString();
+    }
+}
@@ -27,6 +27,8 @@ class TokenEntry implements Comparable<TokenEntry> {
     float floatValue;
     String stringValue;
     Effect effect;
+    EffectFactory factory;
+    String[] params;
 
     TokenEntry(String token, TokenCategory category, int index, int endIndex, float floatValue, String stringValue) {
         this.token = token;
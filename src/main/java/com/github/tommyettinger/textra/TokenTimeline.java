@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2021-2022 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.tommyettinger.textra;
+
+import com.badlogic.gdx.utils.Array;
+
+import java.util.Arrays;
+
+/**
+ * The parsed tokens of a {@link TypingLabel}, stored in parallel arrays in the order they will be reached, with a
+ * cursor to the next one. Everything the char progression needs (index, kind, value, and the Effect and EffectFactory)
+ * is resolved when this is built, so advancing through tokens only reads arrays. Token names and effect parameters are
+ * kept only so a {@link CompiledText} can be captured from this.
+ */
+final class TokenTimeline {
+    static final int OTHER = 0;
+    static final int WAIT = 1;
+    static final int SPEED = 2;
+    static final int EVENT = 3;
+    static final int EFFECT_START = 4;
+    static final int EFFECT_END = 5;
+
+    int size;
+    /**
+     * The index of the next token to be reached; tokens before this have already been processed.
+     */
+    int cursor;
+    int[] indices = new int[8];
+    int[] endIndices = new int[8];
+    int[] kinds = new int[8];
+    float[] floatValues = new float[8];
+    String[] stringValues = new String[8];
+    /**
+     * Effects for effect start tokens that haven't been reached yet; set to null when a TypingLabel starts using one.
+     */
+    Effect[] effects = new Effect[8];
+    EffectFactory[] factories = new EffectFactory[8];
+    TokenCategory[] categories = new TokenCategory[8];
+    String[] tokens = new String[8];
+    String[][] params = new String[8][];
+
+    static int kindOf(TokenCategory category) {
+        switch (category) {
+            case WAIT:
+                return WAIT;
+            case SPEED:
+                return SPEED;
+            case EVENT:
+                return EVENT;
+            case EFFECT_START:
+                return EFFECT_START;
+            case EFFECT_END:
+                return EFFECT_END;
+            default:
+                return OTHER;
+        }
+    }
+
+    /**
+     * @return true if there is a token left and it starts at the given raw char index
+     */
+    boolean isAt(int rawCharIndex) {
+        return cursor < size && indices[cursor] == rawCharIndex;
+    }
+
+    /**
+     * Replaces the contents of this with the given entries, which must be sorted as by {@link Array#sort()}, so the
+     * first token to be reached is last. The entries are not modified.
+     */
+    void set(Array<TokenEntry> sorted) {
+        clear();
+        ensureCapacity(sorted.size);
+        for (int i = sorted.size - 1; i >= 0; i--) {
+            TokenEntry entry = sorted.get(i);
+            add(entry.token, entry.category, entry.index, entry.endIndex, entry.floatValue, entry.stringValue,
+                    entry.params, entry.effect, entry.factory);
+        }
+    }
+
+    void add(String token, TokenCategory category, int index, int endIndex, float floatValue, String stringValue,
+             String[] params, Effect effect, EffectFactory factory) {
+        ensureCapacity(size + 1);
+        tokens[size] = token;
+        categories[size] = category;
+        kinds[size] = kindOf(category);
+        indices[size] = index;
+        endIndices[size] = endIndex;
+        floatValues[size] = floatValue;
+        stringValues[size] = stringValue;
+        this.params[size] = params;
+        effects[size] = effect;
+        factories[size] = factory;
+        size++;
+    }
+
+    void ensureCapacity(int capacity) {
+        if (capacity <= indices.length) return;
+        final int n = Math.max(capacity, indices.length << 1);
+        indices = Arrays.copyOf(indices, n);
+        endIndices = Arrays.copyOf(endIndices, n);
+        kinds = Arrays.copyOf(kinds, n);
+        floatValues = Arrays.copyOf(floatValues, n);
+        stringValues = Arrays.copyOf(stringValues, n);
+        effects = Arrays.copyOf(effects, n);
+        factories = Arrays.copyOf(factories, n);
+        categories = Arrays.copyOf(categories, n);
+        tokens = Arrays.copyOf(tokens, n);
+        params = Arrays.copyOf(params, n);
+    }
+
+    /**
+     * Returns any effects that were never started to their pools, then removes all tokens.
+     */
+    void clear() {
+        for (int i = 0; i < size; i++) {
+            TypingConfig.freeEffect(effects[i]);
+        }
+        Arrays.fill(effects, 0, size, null);
+        Arrays.fill(factories, 0, size, null);
+        Arrays.fill(stringValues, 0, size, null);
+        Arrays.fill(tokens, 0, size, null);
+        Arrays.fill(params, 0, size, null);
+        size = 0;
+        cursor = 0;
+    }
+}
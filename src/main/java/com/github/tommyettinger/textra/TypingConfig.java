@@ -19,7 +19,12 @@ package com.github.tommyettinger.textra;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.utils.ObjectFloatMap;
 import com.badlogic.gdx.utils.ObjectMap;
+import com.badlogic.gdx.utils.ObjectSet;
 import com.badlogic.gdx.utils.OrderedMap;
+import com.badlogic.gdx.utils.Pool;
+import com.badlogic.gdx.utils.reflect.ClassReflection;
+import com.badlogic.gdx.utils.reflect.Constructor;
+import com.badlogic.gdx.utils.reflect.ReflectionException;
 import com.github.tommyettinger.textra.effects.*;
 
 /**
@@ -55,6 +60,49 @@ public class TypingConfig {
      */
     public static int CHAR_LIMIT_PER_FRAME = -1;
 
+    /**
+     * If greater than 0, every TypingLabel advances its typing and effects in steps of exactly this many seconds,
+     * rather than by each frame's delta. Time from {@link TypingLabel#act(float)} is accumulated, and as many whole
+     * steps are run as fit (up to {@link #MAX_STEPS_PER_ACT}). This makes text animation reproducible for the same
+     * total time, such as in replays or tests, and keeps frame spikes from causing bursts of work. Default value is
+     * {@code 0}, which uses each frame's delta directly.
+     */
+    public static float FIXED_TIME_STEP = 0f;
+
+    /**
+     * When {@link #FIXED_TIME_STEP} is used, this is the most steps one call to {@link TypingLabel#act(float)} will
+     * run; any more time than that is dropped, so a long hitch can't cause a long catch-up. Default value is {@code 4}.
+     */
+    public static int MAX_STEPS_PER_ACT = 4;
+
+    /**
+     * If true, built-in effects that use noise or curved interpolation read them from precomputed tables in
+     * {@link com.github.tommyettinger.textra.utils.LookupNoise} and
+     * {@link com.github.tommyettinger.textra.utils.LookupInterpolation}, instead of calculating them for each glyph.
+     * The results are visually the same, but can be a little faster, especially on GWT. Default value is {@code false}.
+     */
+    public static boolean USE_LOOKUP_TABLES = false;
+
+    /**
+     * Default for {@link TypingLabel#effectUpdateInterval}: effects are recalculated once every this many frames, and
+     * glyphs keep the offsets, sizes, and rotations from the last update in between. Default value is {@code 1}, which
+     * updates effects every frame.
+     */
+    public static int EFFECT_UPDATE_INTERVAL = 1;
+
+    /**
+     * Default for {@link TypingLabel#effectMinHeight}: if a TypingLabel's font would be shorter than this many world
+     * units after applying the scale of the label and its parents, effects are frozen and glyphs are drawn in place.
+     * Default value is {@code 0}, which never freezes effects due to size.
+     */
+    public static float EFFECT_MIN_HEIGHT = 0f;
+
+    /**
+     * Default for {@link TypingLabel#effectsOnlyWhenVisible}: if true, effects aren't applied to a TypingLabel that is
+     * hidden, fully transparent, or outside its Stage's camera. Default value is {@code false}.
+     */
+    public static boolean EFFECTS_ONLY_WHEN_VISIBLE = false;
+
     /**
      * Default color for the {@code CLEARCOLOR} token. Can be overriden by {@link TypingLabel#getClearColor()}.
      */
@@ -72,14 +120,36 @@ public class TypingConfig {
     public static final ObjectMap<String, String> GLOBAL_VARS = new ObjectMap<>();
 
     /**
-     * Map of start tokens and their effect classes. Internal use only.
+     * Map of start tokens and their effect factories. Internal use only.
+     */
+    static final OrderedMap<String, EffectFactory> EFFECT_START_TOKENS = new OrderedMap<>();
+
+    /**
+     * Map of end tokens and their effect factories. Internal use only.
+     */
+    static final OrderedMap<String, EffectFactory> EFFECT_END_TOKENS = new OrderedMap<>();
+
+    /**
+     * Factories that were created to wrap Effect classes registered with
+     * {@link #registerEffect(String, String, Class)}, so the same class always uses the same factory.
+     */
+    private static final ObjectMap<Class<? extends Effect>, EffectFactory> CLASS_FACTORIES = new ObjectMap<>();
+
+    /**
+     * The factories whose Effects may be pooled and reused, because they were registered with
+     * {@link #registerEffect(String, String, EffectFactory, boolean)} with {@code poolable} set to true.
+     */
+    private static final ObjectSet<EffectFactory> POOLED_FACTORIES = new ObjectSet<>();
+
+    /**
+     * Pools of Effects that TypingLabels are done with, one per EffectFactory that created them. Internal use only.
      */
-    static final OrderedMap<String, Class<? extends Effect>> EFFECT_START_TOKENS = new OrderedMap<>();
+    static final ObjectMap<EffectFactory, Pool<Effect>> EFFECT_POOLS = new ObjectMap<>();
 
     /**
-     * Map of end tokens and their effect classes. Internal use only.
+     * The most Effects that each pool in {@link #EFFECT_POOLS} will hold; extras are left for the garbage collector.
      */
-    static final OrderedMap<String, Class<? extends Effect>> EFFECT_END_TOKENS = new OrderedMap<>();
+    public static int EFFECT_POOL_MAX = 64;
 
     /**
      * Whether or not effect tokens are dirty and need to be recalculated.
@@ -87,18 +157,110 @@ public class TypingConfig {
     static boolean dirtyEffectMaps = true;
 
     /**
-     * Registers a new effect to TypingLabel.
+     * Registers a new effect to TypingLabel, using reflection to call the constructor of {@code effectClass}. The
+     * class must have only one constructor, with TypingLabel as its first parameter and optionally String[] as its
+     * second. Prefer {@link #registerEffect(String, String, EffectFactory)}, which doesn't need reflection. On GWT,
+     * this only works for classes that are included in reflection, such as the built-in effects, which the textratypist
+     * GWT module includes.
      *
      * @param startTokenName Name of the token that starts the effect, such as WAVE.
      * @param endTokenName   Name of the token that ends the effect, such as ENDWAVE.
      * @param effectClass    Class of the effect, such as WaveEffect.class.
      */
     public static void registerEffect(String startTokenName, String endTokenName, Class<? extends Effect> effectClass) {
-        EFFECT_START_TOKENS.put(startTokenName.toUpperCase(), effectClass);
-        EFFECT_END_TOKENS.put(endTokenName.toUpperCase(), effectClass);
+        EffectFactory factory = CLASS_FACTORIES.get(effectClass);
+        if (factory == null) {
+            factory = new ReflectionEffectFactory(effectClass);
+            CLASS_FACTORIES.put(effectClass, factory);
+        }
+        registerEffect(startTokenName, endTokenName, factory);
+    }
+
+    /**
+     * Registers a new effect to TypingLabel, using a factory to create each Effect. This is usually a constructor
+     * reference, such as {@code WaveEffect::new}. When the end token is reached, or the start token is reached again,
+     * any active effects created by the same factory are ended. Only effects created by that exact factory are ended;
+     * an effect registered with a different factory isn't, even if its class extends this effect's class.
+     * <br>
+     * Effects created this way are not pooled; a new one is created for every start token. Use
+     * {@link #registerEffect(String, String, EffectFactory, boolean)} to allow pooling for an Effect class that
+     * supports it.
+     *
+     * @param startTokenName Name of the token that starts the effect, such as WAVE.
+     * @param endTokenName   Name of the token that ends the effect, such as ENDWAVE.
+     * @param factory        Creates an Effect given a TypingLabel and the token's parameters, such as WaveEffect::new.
+     */
+    public static void registerEffect(String startTokenName, String endTokenName, EffectFactory factory) {
+        registerEffect(startTokenName, endTokenName, factory, false);
+    }
+
+    /**
+     * Registers a new effect to TypingLabel, using a factory to create each Effect, and optionally allowing those
+     * Effects to be pooled. This is otherwise the same as {@link #registerEffect(String, String, EffectFactory)}.
+     * <br>
+     * If {@code poolable} is true, Effects are reused once a TypingLabel is done with them, without calling the
+     * factory again. This is only safe if the Effect class reads all of its parameters in
+     * {@link Effect#assignParameters(String[])} (not only in its constructor) and puts all of its fields back to their
+     * defaults in {@link Effect#reset()}, as all built-in effects do. Otherwise, a reused Effect would keep the state
+     * from the token it was made for, so pass false unless the class is written for this.
+     *
+     * @param startTokenName Name of the token that starts the effect, such as WAVE.
+     * @param endTokenName   Name of the token that ends the effect, such as ENDWAVE.
+     * @param factory        Creates an Effect given a TypingLabel and the token's parameters, such as WaveEffect::new.
+     * @param poolable       if true, Effects made by factory may be reset and reused for later tokens
+     */
+    public static void registerEffect(String startTokenName, String endTokenName, EffectFactory factory, boolean poolable) {
+        EFFECT_START_TOKENS.put(startTokenName.toUpperCase(), factory);
+        EFFECT_END_TOKENS.put(endTokenName.toUpperCase(), factory);
+        if (poolable) {
+            POOLED_FACTORIES.add(factory);
+        } else if (POOLED_FACTORIES.remove(factory)) {
+            EFFECT_POOLS.remove(factory);
+        }
         dirtyEffectMaps = true;
     }
 
+    /**
+     * Gets an Effect from the given factory's pool if one is available, or creates a new one with the factory.
+     * Internal use only.
+     *
+     * @param factory the factory registered for the start token
+     * @param label   the TypingLabel the Effect will be applied to
+     * @param params  the parameters given to the start token
+     * @return an Effect ready to be used by label
+     */
+    static Effect obtainEffect(EffectFactory factory, TypingLabel label, String[] params) {
+        Pool<Effect> pool = EFFECT_POOLS.get(factory);
+        Effect effect = pool != null && pool.getFree() > 0
+                ? pool.obtain().init(label, params)
+                : factory.create(label, params);
+        effect.factory = factory;
+        return effect;
+    }
+
+    /**
+     * Resets the given Effect and returns it to the pool for the factory that created it, so a later token can reuse
+     * it. Does nothing if effect is null, wasn't created through {@link #obtainEffect(EffectFactory, TypingLabel, String[])},
+     * or its factory wasn't registered as poolable (so it may not know how to reset itself). Internal use only.
+     *
+     * @param effect an Effect that a TypingLabel no longer uses; may be null
+     */
+    static void freeEffect(Effect effect) {
+        if (effect == null || effect.factory == null || !POOLED_FACTORIES.contains(effect.factory)) return;
+        Pool<Effect> pool = EFFECT_POOLS.get(effect.factory);
+        if (pool == null) {
+            pool = new Pool<Effect>(16, EFFECT_POOL_MAX) {
+                @Override
+                protected Effect newObject() {
+                    // never called, because obtainEffect() only obtains from a pool that has free objects.
+                    throw new IllegalStateException("Effects must be created by their EffectFactory.");
+                }
+            };
+            EFFECT_POOLS.put(effect.factory, pool);
+        }
+        pool.free(effect);
+    }
+
     /**
      * Unregisters an effect from TypingLabel.
      *
@@ -122,28 +284,56 @@ public class TypingConfig {
         INTERVAL_MULTIPLIERS_BY_CHAR.put('\n', 2.5f);
 
         // Register default tokens
-        registerEffect("EASE", "ENDEASE", EaseEffect.class);
-        registerEffect("HANG", "ENDHANG", HangEffect.class);
-        registerEffect("JUMP", "ENDJUMP", JumpEffect.class);
-        registerEffect("SHAKE", "ENDSHAKE", ShakeEffect.class);
-        registerEffect("SICK", "ENDSICK", SickEffect.class);
-        registerEffect("SLIDE", "ENDSLIDE", SlideEffect.class);
-        registerEffect("WAVE", "ENDWAVE", WaveEffect.class);
-        registerEffect("WIND", "ENDWIND", WindEffect.class);
-        registerEffect("RAINBOW", "ENDRAINBOW", RainbowEffect.class);
-        registerEffect("GRADIENT", "ENDGRADIENT", GradientEffect.class);
-        registerEffect("FADE", "ENDFADE", FadeEffect.class);
-        registerEffect("BLINK", "ENDBLINK", BlinkEffect.class);
-        registerEffect("JOLT", "ENDJOLT", JoltEffect.class);
-        registerEffect("SPIRAL", "ENDSPIRAL", SpiralEffect.class);
-        registerEffect("SPIN", "ENDSPIN", SpinEffect.class);
-        registerEffect("CROWD", "ENDCROWD", CrowdEffect.class);
-        registerEffect("SHRINK", "ENDSHRINK", ShrinkEffect.class);
-        registerEffect("EMERGE", "ENDEMERGE", EmergeEffect.class);
-        registerEffect("HEARTBEAT", "ENDHEARTBEAT", HeartbeatEffect.class);
-        registerEffect("CAROUSEL", "ENDCAROUSEL", CarouselEffect.class);
-        registerEffect("SQUASH", "ENDSQUASH", SquashEffect.class);
-        registerEffect("SCALE", "ENDSCALE", ScaleEffect.class);
-        registerEffect("ROTATE", "ENDROTATE", RotateEffect.class);
+        registerEffect("EASE", "ENDEASE", EaseEffect::new, true);
+        registerEffect("HANG", "ENDHANG", HangEffect::new, true);
+        registerEffect("JUMP", "ENDJUMP", JumpEffect::new, true);
+        registerEffect("SHAKE", "ENDSHAKE", ShakeEffect::new, true);
+        registerEffect("SICK", "ENDSICK", SickEffect::new, true);
+        registerEffect("SLIDE", "ENDSLIDE", SlideEffect::new, true);
+        registerEffect("WAVE", "ENDWAVE", WaveEffect::new, true);
+        registerEffect("WIND", "ENDWIND", WindEffect::new, true);
+        registerEffect("RAINBOW", "ENDRAINBOW", RainbowEffect::new, true);
+        registerEffect("GRADIENT", "ENDGRADIENT", GradientEffect::new, true);
+        registerEffect("FADE", "ENDFADE", FadeEffect::new, true);
+        registerEffect("BLINK", "ENDBLINK", BlinkEffect::new, true);
+        registerEffect("JOLT", "ENDJOLT", JoltEffect::new, true);
+        registerEffect("SPIRAL", "ENDSPIRAL", SpiralEffect::new, true);
+        registerEffect("SPIN", "ENDSPIN", SpinEffect::new, true);
+        registerEffect("CROWD", "ENDCROWD", CrowdEffect::new, true);
+        registerEffect("SHRINK", "ENDSHRINK", ShrinkEffect::new, true);
+        registerEffect("EMERGE", "ENDEMERGE", EmergeEffect::new, true);
+        registerEffect("HEARTBEAT", "ENDHEARTBEAT", HeartbeatEffect::new, true);
+        registerEffect("CAROUSEL", "ENDCAROUSEL", CarouselEffect::new, true);
+        registerEffect("SQUASH", "ENDSQUASH", SquashEffect::new, true);
+        registerEffect("SCALE", "ENDSCALE", ScaleEffect::new, true);
+        registerEffect("ROTATE", "ENDROTATE", RotateEffect::new, true);
+    }
+
+    /**
+     * Creates Effects by calling the only constructor of an Effect class with reflection; used by
+     * {@link #registerEffect(String, String, Class)}. Effects made by this are not pooled.
+     */
+    private static class ReflectionEffectFactory implements EffectFactory {
+        private final Class<? extends Effect> effectClass;
+
+        ReflectionEffectFactory(Class<? extends Effect> effectClass) {
+            this.effectClass = effectClass;
+        }
+
+        @Override
+        public Effect create(TypingLabel label, String[] params) {
+            try {
+                Constructor constructor = ClassReflection.getConstructors(effectClass)[0];
+                int constructorParamCount = constructor.getParameterTypes().length;
+                if (constructorParamCount >= 2) {
+                    return (Effect) constructor.newInstance(label, params);
+                } else {
+                    return (Effect) constructor.newInstance(label);
+                }
+            } catch (ReflectionException e) {
+                String message = "Failed to initialize effect " + effectClass + ". Make sure it has only one constructor with TypingLabel as first parameter and optionally String[] as second.";
+                throw new IllegalStateException(message, e);
+            }
+        }
     }
 }
@@ -0,0 +1,258 @@
+/*
+ * Copyright (c) 2021-2022 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.tommyettinger.textra;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.SnapshotArray;
+
+import java.util.Arrays;
+
+/**
+ * Updates many {@link TypingLabel}s together, with one shared clock, so that effects which only depend on time and a
+ * glyph's position in the effect (such as {@code WAVE}, {@code RAINBOW}, {@code BLINK}, and {@code HEARTBEAT}) can
+ * calculate each value once per frame and reuse it for every label with the same effect parameters. This helps most
+ * when many labels use the same effect, such as a screen full of {@code {RAINBOW}} item names.
+ * <br>
+ * Labels added with {@link #add(TypingLabel)} no longer advance their typing or effects in {@link TypingLabel#act(float)}
+ * (their Actions still run there); instead, call {@link #update(float)} once per frame, and it advances every added
+ * label. Effects in labels added here use {@link #getTime()} as their clock, so they are all in phase with each other,
+ * even if they started at different times; durations and fade-outs still use each effect's own time. If
+ * {@link TypingConfig#FIXED_TIME_STEP} is positive, the shared clock and every label advance together in steps of that
+ * size, so effects that use the shared clock are just as reproducible as they are in a label that advances itself.
+ * <br>
+ * Memoized values are stored in {@link Channel}s, one per effect type and set of parameters. Channels are kept until
+ * {@link #clearChannels()} is called, which is only needed if very many different effect parameters have been used.
+ */
+public class TypingEffectsSystem {
+    protected final SnapshotArray<TypingLabel> labels = new SnapshotArray<>(true, 16, TypingLabel.class);
+    protected final Array<Channel> channels = new Array<>(false, 8, Channel.class);
+    protected float time = 0f;
+    /**
+     * Time from {@link #update(float)} that hasn't been used yet, when {@link TypingConfig#FIXED_TIME_STEP} is positive.
+     */
+    protected float stepAccumulator = 0f;
+    /**
+     * Incremented by each call to {@link #update(float)}; values memoized in a different frame are ignored.
+     */
+    protected int frame = 1;
+
+    /**
+     * Holds the values one kind of effect, with one set of parameters, calculated for each local index in one frame.
+     * Effects get a Channel from {@link #channel(Object, float, float, float, float)}, check {@link #has(int)}, and
+     * either read the stored value or calculate it and store it with {@link #put(int, float)} or {@link #put(int, int)}.
+     */
+    public static final class Channel {
+        public final TypingEffectsSystem system;
+        public final Object kind;
+        public final float a, b, c, d;
+        private int[] stamps = new int[16];
+        private float[] floats = new float[16];
+        private int[] ints = new int[16];
+
+        Channel(TypingEffectsSystem system, Object kind, float a, float b, float c, float d) {
+            this.system = system;
+            this.kind = kind;
+            this.a = a;
+            this.b = b;
+            this.c = c;
+            this.d = d;
+        }
+
+        /**
+         * @param localIndex the index of a glyph relative to the start of its effect
+         * @return true if a value was stored for localIndex during the current frame
+         */
+        public boolean has(int localIndex) {
+            return localIndex >= 0 && localIndex < stamps.length && stamps[localIndex] == system.frame;
+        }
+
+        /**
+         * @param localIndex an index that {@link #has(int)} returned true for
+         * @return the float stored for localIndex during the current frame
+         */
+        public float getFloat(int localIndex) {
+            return floats[localIndex];
+        }
+
+        /**
+         * @param localIndex an index that {@link #has(int)} returned true for
+         * @return the int stored for localIndex during the current frame
+         */
+        public int getInt(int localIndex) {
+            return ints[localIndex];
+        }
+
+        /**
+         * Stores a float for localIndex until the end of the current frame. Does nothing if localIndex is negative.
+         * @return value, for chaining
+         */
+        public float put(int localIndex, float value) {
+            if (ensure(localIndex)) {
+                floats[localIndex] = value;
+                stamps[localIndex] = system.frame;
+            }
+            return value;
+        }
+
+        /**
+         * Stores an int for localIndex until the end of the current frame. Does nothing if localIndex is negative.
+         * @return value, for chaining
+         */
+        public int put(int localIndex, int value) {
+            if (ensure(localIndex)) {
+                ints[localIndex] = value;
+                stamps[localIndex] = system.frame;
+            }
+            return value;
+        }
+
+        private boolean ensure(int localIndex) {
+            if (localIndex < 0) return false;
+            if (localIndex >= stamps.length) {
+                final int size = Math.max(localIndex + 1, stamps.length << 1);
+                stamps = Arrays.copyOf(stamps, size);
+                floats = Arrays.copyOf(floats, size);
+                ints = Arrays.copyOf(ints, size);
+            }
+            return true;
+        }
+
+        boolean matches(Object kind, float a, float b, float c, float d) {
+            return this.kind == kind && this.a == a && this.b == b && this.c == c && this.d == d;
+        }
+    }
+
+    /**
+     * Makes this system advance the given label in {@link #update(float)}, instead of the label advancing itself in
+     * {@link TypingLabel#act(float)}. If the label was in another TypingEffectsSystem, it is removed from that one.
+     *
+     * @param label a TypingLabel to update with this system
+     */
+    public void add(TypingLabel label) {
+        if (label.effectsSystem == this) return;
+        if (label.effectsSystem != null) label.effectsSystem.remove(label);
+        label.effectsSystem = this;
+        labels.add(label);
+    }
+
+    /**
+     * Stops updating the given label; it will advance itself in {@link TypingLabel#act(float)} again.
+     *
+     * @param label a TypingLabel that was added to this system
+     * @return true if label had been added to this system
+     */
+    public boolean remove(TypingLabel label) {
+        if (label.effectsSystem != this) return false;
+        label.effectsSystem = null;
+        return labels.removeValue(label, true);
+    }
+
+    /**
+     * @return how many labels this updates
+     */
+    public int size() {
+        return labels.size;
+    }
+
+    /**
+     * Advances the shared clock, forgets all values memoized in the previous frame, and then advances every label that
+     * was added to this, in the order they were added. If {@link TypingConfig#FIXED_TIME_STEP} is positive, this does
+     * that zero or more times, in steps of that size, the same way {@link TypingLabel#act(float)} would. Call this once
+     * per frame, typically right after {@link com.badlogic.gdx.scenes.scene2d.Stage#act(float)}. Labels may be added or
+     * removed during this, such as by a {@link TypingListener}; a label removed this way isn't advanced again.
+     *
+     * @param delta time in seconds since the last update
+     */
+    public void update(float delta) {
+        final float step = TypingConfig.FIXED_TIME_STEP;
+        if (step > 0f) {
+            stepAccumulator += delta;
+            int steps = 0;
+            while (stepAccumulator >= step && steps < TypingConfig.MAX_STEPS_PER_ACT) {
+                advance(step);
+                stepAccumulator -= step;
+                steps++;
+            }
+            // After a long hitch, drop the time that couldn't be caught up on instead of carrying it forward
+            if (stepAccumulator >= step) stepAccumulator %= step;
+            // Make sure new text still gets parsed and measured, without advancing time
+            if (steps == 0) {
+                final TypingLabel[] items = labels.begin();
+                for (int i = 0, n = labels.size; i < n; i++) {
+                    if (items[i].effectsSystem == this) items[i].step(0f);
+                }
+                labels.end();
+            }
+        } else {
+            advance(delta);
+        }
+    }
+
+    /**
+     * Advances the shared clock and every label by exactly delta, once.
+     *
+     * @param delta time in seconds to advance by
+     */
+    protected void advance(float delta) {
+        time += delta;
+        if (++frame == 0) {
+            // When the frame counter wraps around, old stamps could match again.
+            for (int i = 0; i < channels.size; i++) {
+                Arrays.fill(channels.get(i).stamps, 0);
+            }
+            frame = 1;
+        }
+        // Iterating a snapshot lets listeners remove labels (even other labels) while this runs.
+        final TypingLabel[] items = labels.begin();
+        for (int i = 0, n = labels.size; i < n; i++) {
+            if (items[i].effectsSystem == this) items[i].advance(delta);
+        }
+        labels.end();
+    }
+
+    /**
+     * @return the shared clock, in seconds, that effects in labels added to this system use
+     */
+    public float getTime() {
+        return time;
+    }
+
+    /**
+     * Gets the Channel for the given kind of effect with the given parameters, creating it if it doesn't exist yet.
+     * Effects should look this up once and keep it, since this searches every Channel. Parameters an effect doesn't
+     * use should be 0.
+     *
+     * @param kind typically the Class of the effect, such as {@code WaveEffect.class}
+     * @return a Channel shared by every effect with the same kind and parameters
+     */
+    public Channel channel(Object kind, float a, float b, float c, float d) {
+        final Channel[] items = channels.items;
+        for (int i = 0, n = channels.size; i < n; i++) {
+            if (items[i].matches(kind, a, b, c, d)) return items[i];
+        }
+        Channel ch = new Channel(this, kind, a, b, c, d);
+        channels.add(ch);
+        return ch;
+    }
+
+    /**
+     * Forgets every Channel. Effects that still hold a Channel keep working, but no longer share it with new effects.
+     */
+    public void clearChannels() {
+        channels.clear();
+    }
+}
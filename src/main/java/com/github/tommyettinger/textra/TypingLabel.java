@@ -19,6 +19,9 @@ package com.github.tommyettinger.textra;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.g2d.Batch;
 import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.scenes.scene2d.Actor;
+import com.badlogic.gdx.scenes.scene2d.Stage;
 import com.badlogic.gdx.scenes.scene2d.ui.Label;
 import com.badlogic.gdx.scenes.scene2d.ui.Skin;
 import com.badlogic.gdx.scenes.scene2d.utils.Drawable;
@@ -29,7 +32,7 @@ import com.badlogic.gdx.utils.FloatArray;
 import com.badlogic.gdx.utils.LongArray;
 import com.badlogic.gdx.utils.ObjectMap;
 import com.badlogic.gdx.utils.ObjectMap.Entry;
-import com.badlogic.gdx.utils.reflect.ClassReflection;
+import com.badlogic.gdx.utils.TimeUtils;
 
 import java.lang.StringBuilder;
 import java.util.Arrays;
@@ -48,7 +51,11 @@ public class TypingLabel extends TextraLabel {
 
     // Collections
     private final ObjectMap<String, String> variables = new ObjectMap<String, String>();
+    /**
+     * Only used while parsing; the parsed tokens are then stored in {@link #timeline}.
+     */
     protected final Array<TokenEntry> tokenEntries = new Array<TokenEntry>();
+    final TokenTimeline timeline = new TokenTimeline();
 
     // Config
     private final Color clearColor = new Color(TypingConfig.DEFAULT_CLEAR_COLOR);
@@ -71,6 +78,34 @@ public class TypingLabel extends TextraLabel {
      */
     public final FloatArray rotations = new FloatArray();
     protected final Array<Effect> activeEffects = new Array<Effect>();
+    /**
+     * Effects are recalculated once every this many frames; in between, glyphs keep the offsets, sizing, and rotations
+     * from the last update, and the time that passed is given to effects all at once on the next update. Effects are
+     * still updated right away when a new glyph appears or the text changes size. Defaults to
+     * {@link TypingConfig#EFFECT_UPDATE_INTERVAL}.
+     */
+    public int effectUpdateInterval = TypingConfig.EFFECT_UPDATE_INTERVAL;
+    /**
+     * If the font's {@link Font#cellHeight}, scaled by this label and all of its parents, is less than this, effects
+     * are frozen: they keep track of time (so effects with a duration still end), but aren't applied to any glyphs.
+     * Defaults to {@link TypingConfig#EFFECT_MIN_HEIGHT}.
+     */
+    public float effectMinHeight = TypingConfig.EFFECT_MIN_HEIGHT;
+    /**
+     * If true, effects are frozen (as with {@link #effectMinHeight}) while this label or any parent is invisible or
+     * fully transparent, or while this label is outside the camera of its Stage. Defaults to
+     * {@link TypingConfig#EFFECTS_ONLY_WHEN_VISIBLE}.
+     */
+    public boolean effectsOnlyWhenVisible = TypingConfig.EFFECTS_ONLY_WHEN_VISIBLE;
+    private int effectFrame = 0;
+    private int effectGlyphIndex = -1;
+    private float pendingEffectDelta = 0f;
+    private float stepAccumulator = 0f;
+    /**
+     * If non-null, this label is advanced by {@link TypingEffectsSystem#update(float)} instead of by {@link #act(float)}.
+     */
+    TypingEffectsSystem effectsSystem = null;
+    private final Vector2 tempCorner = new Vector2();
     private float textSpeed = TypingConfig.DEFAULT_SPEED_PER_CHAR;
     private float charCooldown = textSpeed;
     private int rawCharIndex = -2; // All chars, including color codes
@@ -84,6 +119,18 @@ public class TypingLabel extends TextraLabel {
     private boolean ignoringEvents = false;
     private boolean ignoringEffects = false;
     private String defaultToken = "";
+    /**
+     * True when the wrapped layouts may not match {@link #intermediateText}, so they must be built again from it.
+     */
+    private boolean wrapDirty = true;
+    /**
+     * The {@link Layout#getTargetWidth()} of {@link #layout} when the wrapped layouts were last built.
+     */
+    private float wrappedTargetWidth = -1f;
+    /**
+     * If non-null, tokens are loaded from this instead of being parsed from {@link #originalText}.
+     */
+    private CompiledText compiledText = null;
 
     ////////////////////////////
     /// --- Constructors --- ///
@@ -176,6 +223,7 @@ public class TypingLabel extends TextraLabel {
      */
     protected void setText(String newText, boolean modifyOriginalText, boolean restart) {
         final boolean hasEnded = this.hasEnded();
+        wrapDirty = true;
         float actualWidth = layout.getWidth();
         workingLayout.setTargetWidth(actualWidth);
         font.markup(newText, layout.clear());
@@ -205,6 +253,7 @@ public class TypingLabel extends TextraLabel {
      * text with all tokens unchanged.
      */
     protected void saveOriginalText(CharSequence text) {
+        compiledText = null;
         if (text != originalText) {
             originalText.setLength(0);
             originalText.append(text);
@@ -266,13 +315,22 @@ public class TypingLabel extends TextraLabel {
      */
     public void setDefaultToken(String defaultToken) {
         this.defaultToken = defaultToken == null ? "" : defaultToken;
+        this.compiledText = null;
         this.parsed = false;
     }
 
     /**
      * Parses all tokens of this label. Use this after setting the text and any variables that should be replaced.
+     * If this label was last restarted with a {@link CompiledText}, this loads the tokens from that instead.
      */
     public void parseTokens() {
+        if (compiledText != null) {
+            setIntermediateText(compiledText.intermediateText, false, false);
+            compiledText.loadTokens(this);
+            this.setText(compiledText.intermediateText, false, false);
+            parsed = true;
+            return;
+        }
         this.setText(Parser.preprocess("{NORMAL}" + getDefaultToken() + originalText), false, false);
         Parser.parseTokens(this);
         parsed = true;
@@ -363,7 +421,8 @@ public class TypingLabel extends TextraLabel {
      * automatically parsed.
      */
     public void restart() {
-        restart(getOriginalText().toString());
+        if (compiledText != null) restart(compiledText);
+        else restart(getOriginalText().toString());
     }
 
     /**
@@ -371,19 +430,49 @@ public class TypingLabel extends TextraLabel {
      * parsed.
      */
     public void restart(String newText) {
+        resetProgression();
+
+        // Set new text
+        invalidate();
+        saveOriginalText(newText);
+
+        // Parse tokens
+        parseTokens();
+    }
+
+    /**
+     * Restarts this label with text and tokens that were already parsed by
+     * {@link CompiledText#compile(TypingLabel, String)}, and starts the char progression right away. This doesn't run
+     * the {@link Parser}, so it avoids all regex matching and variable replacement. Later calls to {@link #restart()}
+     * load from the same CompiledText, until different text is given to this label.
+     */
+    public void restart(CompiledText compiled) {
+        resetProgression();
+
+        // Set new text
+        invalidate();
+        saveOriginalText(compiled.originalText);
+        compiledText = compiled;
+
+        // Load tokens
+        parseTokens();
+    }
+
+    /**
+     * Clears the cached layout, effects, and typing state, as the first step of restarting.
+     */
+    private void resetProgression() {
         // Reset cache collections
         workingLayout.baseColor = Color.WHITE_FLOAT_BITS;
         workingLayout.maxLines = Integer.MAX_VALUE;
         workingLayout.atLimit = false;
         workingLayout.ellipsis = null;
-        Line.POOL.freeAll(workingLayout.lines);
-        workingLayout.lines.clear();
-        workingLayout.lines.add(Line.POOL.obtain());
+        workingLayout.clear();
 
         offsets.clear();
         sizing.clear();
         rotations.clear();
-        activeEffects.clear();
+        freeEffects();
 
         // Reset state
         textSpeed = TypingConfig.DEFAULT_SPEED_PER_CHAR;
@@ -398,14 +487,23 @@ public class TypingLabel extends TextraLabel {
         skipping = false;
         ignoringEvents = false;
         ignoringEffects = false;
+        effectFrame = 0;
+        effectGlyphIndex = -1;
+        pendingEffectDelta = 0f;
+        stepAccumulator = 0f;
+    }
 
-        // Set new text
-        invalidate();
-        saveOriginalText(newText);
-
-        // Parse tokens
+    /**
+     * Returns all active effects, and any effects in tokens that haven't been reached yet, to their pools in
+     * {@link TypingConfig}, then clears both.
+     */
+    protected void freeEffects() {
+        for (int i = 0, n = activeEffects.size; i < n; i++) {
+            TypingConfig.freeEffect(activeEffects.get(i));
+        }
+        activeEffects.clear();
+        timeline.clear();
         tokenEntries.clear();
-        parseTokens();
     }
 
     /**
@@ -455,8 +553,58 @@ public class TypingLabel extends TextraLabel {
 
     @Override
     public void act(float delta) {
+        final long startTime = TextraStats.ENABLED ? TimeUtils.nanoTime() : 0L;
         super.act(delta);
+        if (effectsSystem == null) step(delta);
+
+        if (TextraStats.ENABLED) {
+            TextraStats.actCalls++;
+            TextraStats.actGlyphs += layout.countGlyphs();
+            TextraStats.actNanos += TimeUtils.nanoTime() - startTime;
+        }
+    }
+
+    /**
+     * Advances this label by the given frame time, either all at once or in fixed steps if
+     * {@link TypingConfig#FIXED_TIME_STEP} is positive. Called by {@link #act(float)}; a
+     * {@link TypingEffectsSystem} this label was added to calls {@link #advance(float)} itself instead, so its shared
+     * clock moves in the same steps as the label.
+     */
+    void step(float delta) {
+        final float step = TypingConfig.FIXED_TIME_STEP;
+        if (step > 0f) {
+            // Advance in fixed steps, so the same total time always produces the same text and effects
+            stepAccumulator += delta;
+            int steps = 0;
+            while (stepAccumulator >= step && steps < TypingConfig.MAX_STEPS_PER_ACT) {
+                advance(step);
+                stepAccumulator -= step;
+                steps++;
+            }
+            // After a long hitch, drop the time that couldn't be caught up on instead of carrying it forward
+            if (stepAccumulator >= step) stepAccumulator %= step;
+            // Make sure new text still gets parsed and measured, without advancing time
+            if (steps == 0 && (!parsed || offsets.size != layout.countGlyphs() << 1)) advance(0f);
+        } else {
+            advance(delta);
+        }
+    }
+
+    /**
+     * @return the TypingEffectsSystem that advances this label, or null if this label advances itself
+     */
+    public TypingEffectsSystem getEffectsSystem() {
+        return effectsSystem;
+    }
 
+    /**
+     * Advances the char progression and all effects by the given time. This is called once per {@link #act(float)}
+     * (or {@link TypingEffectsSystem#update(float)}) with the frame's delta, or zero or more times with
+     * {@link TypingConfig#FIXED_TIME_STEP} if that is positive.
+     *
+     * @param delta time in seconds to advance by
+     */
+    protected void advance(float delta) {
         // Force token parsing
         if (!parsed) {
             parseTokens();
@@ -469,7 +617,20 @@ public class TypingLabel extends TextraLabel {
             }
         }
         font.calculateSize(workingLayout);
-        int glyphCount = getLayoutSize(layout);
+        int glyphCount = layout.countGlyphs();
+        pendingEffectDelta += delta;
+
+        // Between effect updates, keep the offsets, sizing, and rotations from the last one
+        final boolean showEffects = !ignoringEffects && shouldShowEffects();
+        if (showEffects && offsets.size == glyphCount + glyphCount && effectGlyphIndex == glyphCharIndex
+                && ++effectFrame < effectUpdateInterval) {
+            return;
+        }
+        final float effectDelta = pendingEffectDelta;
+        pendingEffectDelta = 0f;
+        effectFrame = 0;
+        effectGlyphIndex = glyphCharIndex;
+
         offsets.setSize(glyphCount + glyphCount);
         Arrays.fill(offsets.items, 0, glyphCount + glyphCount, 0f);
         sizing.setSize(glyphCount + glyphCount);
@@ -479,30 +640,70 @@ public class TypingLabel extends TextraLabel {
 
         // Apply effects
         if (!ignoringEffects) {
-            int workingLayoutSize = getLayoutSize(workingLayout);
+            int workingLayoutSize = workingLayout.countGlyphs();
 
             for (int i = activeEffects.size - 1; i >= 0; i--) {
                 Effect effect = activeEffects.get(i);
-                effect.update(delta);
+                effect.update(effectDelta);
                 int start = effect.indexStart;
                 int end = effect.indexEnd >= 0 ? effect.indexEnd : glyphCharIndex;
 
                 // If effect is finished, remove it
                 if (effect.isFinished()) {
-                    activeEffects.removeIndex(i);
+                    TypingConfig.freeEffect(activeEffects.removeIndex(i));
                     continue;
                 }
 
+                // Frozen effects keep time, but don't move any glyphs
+                if (!showEffects) continue;
+
                 // Apply effect to glyph
                 for (int j = Math.max(0, start); j <= glyphCharIndex && j <= end && j < workingLayoutSize; j++) {
                     long glyph = getInLayout(workingLayout, j);
                     if (glyph == 0xFFFFFFL) break; // invalid char
-                    effect.apply(glyph, j, delta);
+                    effect.apply(glyph, j, effectDelta);
                 }
             }
         }
     }
 
+    /**
+     * Checks {@link #effectMinHeight} and {@link #effectsOnlyWhenVisible} to determine if effects should move glyphs
+     * this frame. If this returns false, effects are frozen, and glyphs are drawn without offsets.
+     *
+     * @return true if effects should be applied to glyphs, or false if they should be frozen
+     */
+    protected boolean shouldShowEffects() {
+        if (effectMinHeight <= 0f && !effectsOnlyWhenVisible) return true;
+        float scale = 1f, alpha = 1f;
+        for (Actor a = this; a != null; a = a.getParent()) {
+            if (effectsOnlyWhenVisible && !a.isVisible()) return false;
+            scale *= Math.abs(a.getScaleY());
+            alpha *= a.getColor().a;
+        }
+        if (font.cellHeight * scale < effectMinHeight) return false;
+        if (effectsOnlyWhenVisible) {
+            if (alpha <= 0f) return false;
+            Stage stage = getStage();
+            if (stage != null) {
+                float minX = Float.POSITIVE_INFINITY, minY = Float.POSITIVE_INFINITY;
+                float maxX = Float.NEGATIVE_INFINITY, maxY = Float.NEGATIVE_INFINITY;
+                for (int c = 0; c < 4; c++) {
+                    localToStageCoordinates(tempCorner.set((c & 1) * getWidth(), (c >>> 1) * getHeight()));
+                    minX = Math.min(minX, tempCorner.x);
+                    minY = Math.min(minY, tempCorner.y);
+                    maxX = Math.max(maxX, tempCorner.x);
+                    maxY = Math.max(maxY, tempCorner.y);
+                }
+                // Glyphs moved by effects can go a little outside the label, so allow one line of slack.
+                float slack = font.cellHeight * scale;
+                return stage.getCamera().frustum.boundsInFrustum((minX + maxX) * 0.5f, (minY + maxY) * 0.5f, 0f,
+                        (maxX - minX) * 0.5f + slack, (maxY - minY) * 0.5f + slack, 0f);
+            }
+        }
+        return true;
+    }
+
     /**
      * Proccess char progression according to current cooldown and process all tokens in the current index.
      */
@@ -531,7 +732,7 @@ public class TypingLabel extends TextraLabel {
 
             // Get next character and calculate cooldown increment
 
-            int layoutSize = getLayoutSize(layout);
+            int layoutSize = layout.countGlyphs();
 
             // If char progression is finished, or if text is empty, notify listener and abort routine
             if (layoutSize == 0 || glyphCharIndex >= layoutSize) {
@@ -544,23 +745,22 @@ public class TypingLabel extends TextraLabel {
             }
 
             // Process tokens according to the current index
-            if (tokenEntries.size > 0 && tokenEntries.peek().index == rawCharIndex) {
-                TokenEntry entry = tokenEntries.pop();
-                String token = entry.token;
-                TokenCategory category = entry.category;
-                rawCharIndex = entry.endIndex - 1;
+            if (timeline.isAt(rawCharIndex)) {
+                final int t = timeline.cursor++;
+                final int kind = timeline.kinds[t];
+                rawCharIndex = timeline.endIndices[t] - 1;
 //                glyphCharIndex--;
                 // Process tokens
-                switch (category) {
-                    case SPEED: {
-                        textSpeed = entry.floatValue;
+                switch (kind) {
+                    case TokenTimeline.SPEED: {
+                        textSpeed = timeline.floatValues[t];
                         continue;
                     }
-                    case WAIT: {
+                    case TokenTimeline.WAIT: {
 //                        glyphCharIndex--;
 //                        rawCharIndex--;
 //                        glyphCharCompensation++;
-                        charCooldown += entry.floatValue;
+                        charCooldown += timeline.floatValues[t];
                         continue;
                     }
 //                    case SKIP: {
@@ -569,32 +769,31 @@ public class TypingLabel extends TextraLabel {
 //                        }
 //                        break;
 //                    }
-                    case EVENT: {
+                    case TokenTimeline.EVENT: {
                         if (this.listener != null && !ignoringEvents) {
-                            listener.event(entry.stringValue);
+                            listener.event(timeline.stringValues[t]);
                         }
                         continue;
                     }
-                    case EFFECT_START:
-                    case EFFECT_END: {
-                        // Get effect class
-                        boolean isStart = category == TokenCategory.EFFECT_START;
-                        Class<? extends Effect> effectClass = isStart ? TypingConfig.EFFECT_START_TOKENS.get(token) : TypingConfig.EFFECT_END_TOKENS.get(token);
-
+                    case TokenTimeline.EFFECT_START:
+                    case TokenTimeline.EFFECT_END: {
                         // End all effects of the same type
+                        final EffectFactory factory = timeline.factories[t];
                         for (int i = 0; i < activeEffects.size; i++) {
                             Effect effect = activeEffects.get(i);
                             if (effect.indexEnd < 0) {
-                                if (ClassReflection.isAssignableFrom(effectClass, effect.getClass())) {
+                                if (effect.factory == factory) {
                                     effect.indexEnd = glyphCharIndex - 1;
                                 }
                             }
                         }
 
-                        // Create new effect if necessary
-                        if (isStart) {
-                            entry.effect.indexStart = glyphCharIndex;
-                            activeEffects.add(entry.effect);
+                        // Start the new effect, if any; it now belongs to activeEffects
+                        final Effect started = timeline.effects[t];
+                        if (kind == TokenTimeline.EFFECT_START && started != null) {
+                            timeline.effects[t] = null;
+                            started.indexStart = glyphCharIndex;
+                            activeEffects.add(started);
                         }
                         continue;
                     }
@@ -644,10 +843,13 @@ public class TypingLabel extends TextraLabel {
             }
         }
         if (wrap) {
-//            font.regenerateLayout(workingLayout);
-//            parseTokens();
-            this.setText(intermediateText.toString(), false, false);
-
+            // The whole text is already laid out; glyphs are revealed by glyphCharIndex, so the wrapped layout only
+            // needs to be built again if the text or the width it wraps at has changed since it was last built.
+            if (wrapDirty || wrappedTargetWidth != layout.getTargetWidth()) {
+                this.setText(intermediateText.toString(), false, false);
+                wrapDirty = false;
+                wrappedTargetWidth = layout.getTargetWidth();
+            }
         } else {
             font.calculateSize(workingLayout);
         }
@@ -655,16 +857,10 @@ public class TypingLabel extends TextraLabel {
         invalidateHierarchy();
     }
 
-    private int getLayoutSize(Layout layout) {
-        int layoutSize = 0;
-        for (int i = 0, n = layout.lines(); i < n; i++) {
-            layoutSize += layout.getLine(i).glyphs.size;
-        }
-        return layoutSize;
-    }
-
     @Override
     public boolean remove() {
+        if (effectsSystem != null) effectsSystem.remove(this);
+        freeEffects();
         Layout.POOL.free(workingLayout);
         Layout.POOL.free(layout);
         return super.remove();
@@ -832,7 +1028,7 @@ public class TypingLabel extends TextraLabel {
                  i < n && r < lim; i++, gi++) {
                 if (gi > end) break EACH_LINE;
                 long glyph = glyphs.glyphs.get(i);
-                if (font.family != null) f = font.family.connected[(int) (glyph >>> 16 & 15)];
+                if (font.family != null) f = font.family.connected[Font.fontIndex(glyph)];
                 if (f == null) f = font;
                 if (f.kerning != null) {
                     kern = kern << 16 | (int) ((glyph = glyphs.glyphs.get(i)) & 0xFFFF);
@@ -874,6 +1070,7 @@ public class TypingLabel extends TextraLabel {
             intermediateText.append(text);
         }
         intermediateText.trimToSize();
+        wrapDirty = true;
         if (modifyOriginalText) saveOriginalText(text);
         if (restart) {
             this.restart();
@@ -930,6 +1127,7 @@ public class TypingLabel extends TextraLabel {
             LongArray glyphs = layout.getLine(i).glyphs;
             if (index < glyphs.size) {
                 glyphs.set(index, newGlyph);
+                layout.getLine(i).modified();
                 return;
             } else
                 index -= glyphs.size;
@@ -941,6 +1139,7 @@ public class TypingLabel extends TextraLabel {
             LongArray glyphs = workingLayout.getLine(i).glyphs;
             if (i < workingLayout.lines() && index < glyphs.size) {
                 glyphs.set(index, newGlyph);
+                workingLayout.getLine(i).modified();
                 return;
 //            LongArray glyphs = layout.getLine(i).glyphs;
 //            if(index < glyphs.size) {
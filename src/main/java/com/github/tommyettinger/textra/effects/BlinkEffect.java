@@ -18,6 +18,7 @@ package com.github.tommyettinger.textra.effects;
 
 import com.badlogic.gdx.math.MathUtils;
 import com.github.tommyettinger.textra.Effect;
+import com.github.tommyettinger.textra.TypingEffectsSystem;
 import com.github.tommyettinger.textra.TypingLabel;
 
 /**
@@ -33,7 +34,11 @@ public class BlinkEffect extends Effect {
 
     public BlinkEffect(TypingLabel label, String[] params) {
         super(label);
+        assignParameters(params);
+    }
 
+    @Override
+    protected void assignParameters(String[] params) {
         // Color 1
         if (params.length > 0) {
             int c = paramAsColor(params[0]);
@@ -60,14 +65,33 @@ public class BlinkEffect extends Effect {
         this.threshold = MathUtils.clamp(this.threshold, 0, 1);
     }
 
+    @Override
+    public void reset() {
+        super.reset();
+        color1 = 0xFFFFFFFF;
+        color2 = 0x00000000;
+        frequency = 1;
+        threshold = 0.5f;
+    }
+
     @Override
     protected void onApply(long glyph, int localIndex, int globalIndex, float delta) {
         // Calculate progress
         float frequencyMod = (1f / frequency) * DEFAULT_FREQUENCY;
-        float progress = calculateProgress(frequencyMod);
+
+        // Every glyph blinks together, so only one value is shared per frame
+        TypingEffectsSystem.Channel channel = channel(frequencyMod, threshold, 0f, 0f);
+        boolean first;
+        if (channel != null && channel.has(0)) {
+            first = channel.getInt(0) != 0;
+        } else {
+            float progress = calculateProgressAt(clock(), frequencyMod, 0, true);
+            first = progress <= threshold;
+            if (channel != null) channel.put(0, first ? 1 : 0);
+        }
 
         // Calculate and assign color
-        label.setInWorkingLayout(globalIndex, (glyph & 0xFFFFFFFFL) | (long) (progress <= threshold ? color1 : color2) << 32);
+        label.setInWorkingLayout(globalIndex, (glyph & 0xFFFFFFFFL) | (long) (first ? color1 : color2) << 32);
     }
 
 }
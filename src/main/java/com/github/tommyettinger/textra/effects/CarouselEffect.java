@@ -30,7 +30,11 @@ public class CarouselEffect extends Effect {
 
     public CarouselEffect(TypingLabel label, String[] params) {
         super(label);
+        assignParameters(params);
+    }
 
+    @Override
+    protected void assignParameters(String[] params) {
         // Frequency
         if (params.length > 0) {
             this.frequency = paramAsFloat(params[0], 1.0f);
@@ -42,6 +46,12 @@ public class CarouselEffect extends Effect {
         }
     }
 
+    @Override
+    public void reset() {
+        super.reset();
+        frequency = 1;
+    }
+
     @Override
     protected void onApply(long glyph, int localIndex, int globalIndex, float delta) {
         // Calculate progress
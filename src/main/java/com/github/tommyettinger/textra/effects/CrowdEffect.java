@@ -33,7 +33,11 @@ public class CrowdEffect extends Effect {
 
     public CrowdEffect(TypingLabel label, String[] params) {
         super(label);
+        assignParameters(params);
+    }
 
+    @Override
+    protected void assignParameters(String[] params) {
         // Distance
         if (params.length > 0) {
             this.distance = paramAsFloat(params[0], 15);
@@ -50,6 +54,13 @@ public class CrowdEffect extends Effect {
         }
     }
 
+    @Override
+    public void reset() {
+        super.reset();
+        distance = 15;
+        intensity = 1;
+    }
+
     @Override
     protected void onApply(long glyph, int localIndex, int globalIndex, float delta) {
         // Calculate offset
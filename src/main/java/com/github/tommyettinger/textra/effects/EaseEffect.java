@@ -37,7 +37,11 @@ public class EaseEffect extends Effect {
 
     public EaseEffect(TypingLabel label, String[] params) {
         super(label);
+        assignParameters(params);
+    }
 
+    @Override
+    protected void assignParameters(String[] params) {
         // Distance
         if (params.length > 0) {
             this.distance = paramAsFloat(params[0], -2);
@@ -54,6 +58,15 @@ public class EaseEffect extends Effect {
         }
     }
 
+    @Override
+    public void reset() {
+        super.reset();
+        distance = -2;
+        intensity = 1;
+        elastic = false;
+        timePassedByGlyphIndex.clear();
+    }
+
     @Override
     protected void onApply(long glyph, int localIndex, int globalIndex, float delta) {
         // Calculate real intensity
@@ -35,7 +35,11 @@ public class EmergeEffect extends Effect {
 
     public EmergeEffect(TypingLabel label, String[] params) {
         super(label);
+        assignParameters(params);
+    }
 
+    @Override
+    protected void assignParameters(String[] params) {
         // Distance
         if (params.length > 0) {
             this.intensity = 1.0f / paramAsFloat(params[0], 0.25f);
@@ -47,6 +51,14 @@ public class EmergeEffect extends Effect {
         }
     }
 
+    @Override
+    public void reset() {
+        super.reset();
+        intensity = 4f;
+        elastic = false;
+        timePassedByGlyphIndex.clear();
+    }
+
     @Override
     protected void onApply(long glyph, int localIndex, int globalIndex, float delta) {
         // Calculate real intensity
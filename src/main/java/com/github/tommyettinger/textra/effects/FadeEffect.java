@@ -36,7 +36,11 @@ public class FadeEffect extends Effect {
 
     public FadeEffect(TypingLabel label, String[] params) {
         super(label);
+        assignParameters(params);
+    }
 
+    @Override
+    protected void assignParameters(String[] params) {
         // Color 1 or Alpha 1
         if (params.length > 0) {
             this.color1 = paramAsColor(params[0]);
@@ -59,6 +63,17 @@ public class FadeEffect extends Effect {
         }
     }
 
+    @Override
+    public void reset() {
+        super.reset();
+        color1 = 256;
+        color2 = 256;
+        alpha1 = 0;
+        alpha2 = 1;
+        fadeDuration = 1;
+        timePassedByGlyphIndex.clear();
+    }
+
     @Override
     protected void onApply(long glyph, int localIndex, int globalIndex, float delta) {
         // Calculate progress
@@ -34,7 +34,11 @@ public class GradientEffect extends Effect {
 
     public GradientEffect(TypingLabel label, String[] params) {
         super(label);
+        assignParameters(params);
+    }
 
+    @Override
+    protected void assignParameters(String[] params) {
         // Color 1
         if (params.length > 0) {
             int c = paramAsColor(params[0]);
@@ -58,6 +62,15 @@ public class GradientEffect extends Effect {
         }
     }
 
+    @Override
+    public void reset() {
+        super.reset();
+        color1 = 0xFFFFFFFF;
+        color2 = 0x888888FF;
+        distance = 1;
+        frequency = 1;
+    }
+
     @Override
     protected void onApply(long glyph, int localIndex, int globalIndex, float delta) {
         // Calculate progress
@@ -20,7 +20,9 @@ import com.badlogic.gdx.math.Interpolation;
 import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.utils.IntFloatMap;
 import com.github.tommyettinger.textra.Effect;
+import com.github.tommyettinger.textra.TypingConfig;
 import com.github.tommyettinger.textra.TypingLabel;
+import com.github.tommyettinger.textra.utils.LookupInterpolation;
 
 /**
  * Hangs the text in midair and suddenly drops it. Doesn't repeat itself.
@@ -36,7 +38,11 @@ public class HangEffect extends Effect {
 
     public HangEffect(TypingLabel label, String[] params) {
         super(label);
+        assignParameters(params);
+    }
 
+    @Override
+    protected void assignParameters(String[] params) {
         // Distance
         if (params.length > 0) {
             this.distance = paramAsFloat(params[0], 1);
@@ -48,6 +54,14 @@ public class HangEffect extends Effect {
         }
     }
 
+    @Override
+    public void reset() {
+        super.reset();
+        distance = 1;
+        intensity = 1;
+        timePassedByGlyphIndex.clear();
+    }
+
     @Override
     protected void onApply(long glyph, int localIndex, int globalIndex, float delta) {
         // Calculate real intensity
@@ -61,9 +75,9 @@ public class HangEffect extends Effect {
         float interpolation;
         float split = 0.7f;
         if (progress < split) {
-            interpolation = Interpolation.pow3Out.apply(0, 1, progress / split);
+            interpolation = (TypingConfig.USE_LOOKUP_TABLES ? LookupInterpolation.pow3Out : Interpolation.pow3Out).apply(0, 1, progress / split);
         } else {
-            interpolation = Interpolation.swing.apply(1, 0, (progress - split) / (1f - split));
+            interpolation = (TypingConfig.USE_LOOKUP_TABLES ? LookupInterpolation.swing : Interpolation.swing).apply(1, 0, (progress - split) / (1f - split));
         }
         float distanceFactor = Interpolation.linear.apply(1.0f, 1.5f, progress);
         float height = label.getLineHeight(globalIndex);
@@ -18,6 +18,7 @@ package com.github.tommyettinger.textra.effects;
 
 import com.badlogic.gdx.math.MathUtils;
 import com.github.tommyettinger.textra.Effect;
+import com.github.tommyettinger.textra.TypingEffectsSystem;
 import com.github.tommyettinger.textra.TypingLabel;
 
 /**
@@ -32,7 +33,11 @@ public class HeartbeatEffect extends Effect {
 
     public HeartbeatEffect(TypingLabel label, String[] params) {
         super(label);
+        assignParameters(params);
+    }
 
+    @Override
+    protected void assignParameters(String[] params) {
         // Distance
         if (params.length > 0) {
             this.distance = paramAsFloat(params[0], 1);
@@ -49,13 +54,28 @@ public class HeartbeatEffect extends Effect {
         }
     }
 
+    @Override
+    public void reset() {
+        super.reset();
+        distance = 1;
+        frequency = 1;
+    }
+
     @Override
     protected void onApply(long glyph, int localIndex, int globalIndex, float delta) {
         // Calculate progress
-        float progress = totalTime * frequency * 360.0f * DEFAULT_FREQUENCY;
-
-        float c = MathUtils.cosDeg(progress), s = MathUtils.sinDeg(progress);
-        float x = distance * Math.max(-0.125f, Math.max(c * c * c, s * s * s)) * DEFAULT_DISTANCE;
+        // Every glyph beats together, so only one value is shared per frame
+        TypingEffectsSystem.Channel channel = channel(frequency, 0f, 0f, 0f);
+        float beat;
+        if (channel != null && channel.has(0)) {
+            beat = channel.getFloat(0);
+        } else {
+            float progress = clock() * frequency * 360.0f * DEFAULT_FREQUENCY;
+            float c = MathUtils.cosDeg(progress), s = MathUtils.sinDeg(progress);
+            beat = Math.max(-0.125f, Math.max(c * c * c, s * s * s));
+            if (channel != null) channel.put(0, beat);
+        }
+        float x = distance * beat * DEFAULT_DISTANCE;
 //        float y = distance * Math.max(-0.125f, s * s * s) * DEFAULT_DISTANCE;
 
         // Calculate fadeout
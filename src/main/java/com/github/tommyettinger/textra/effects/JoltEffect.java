@@ -41,7 +41,11 @@ public class JoltEffect extends Effect {
 
     public JoltEffect(TypingLabel label, String[] params) {
         super(label);
+        assignParameters(params);
+    }
 
+    @Override
+    protected void assignParameters(String[] params) {
         // Distance
         if (params.length > 0) {
             this.distance = paramAsFloat(params[0], 1);
@@ -76,6 +80,17 @@ public class JoltEffect extends Effect {
 
     }
 
+    @Override
+    public void reset() {
+        super.reset();
+        lastOffsets.clear();
+        distance = 1;
+        intensity = 1;
+        likelihood = DEFAULT_LIKELIHOOD;
+        baseColor = 0xFFFFFFFF;
+        joltColor = 0xFFFF88FF;
+    }
+
     @Override
     protected void onApply(long glyph, int localIndex, int globalIndex, float delta) {
         // Make sure we can hold enough entries for the current index
@@ -18,7 +18,9 @@ package com.github.tommyettinger.textra.effects;
 
 import com.badlogic.gdx.math.Interpolation;
 import com.github.tommyettinger.textra.Effect;
+import com.github.tommyettinger.textra.TypingConfig;
 import com.github.tommyettinger.textra.TypingLabel;
+import com.github.tommyettinger.textra.utils.LookupInterpolation;
 
 /**
  * Makes the text jumps and falls as if there was gravity.
@@ -34,7 +36,11 @@ public class JumpEffect extends Effect {
 
     public JumpEffect(TypingLabel label, String[] params) {
         super(label);
+        assignParameters(params);
+    }
 
+    @Override
+    protected void assignParameters(String[] params) {
         // Distance
         if (params.length > 0) {
             this.distance = paramAsFloat(params[0], 1);
@@ -56,6 +62,14 @@ public class JumpEffect extends Effect {
         }
     }
 
+    @Override
+    public void reset() {
+        super.reset();
+        distance = 1;
+        frequency = 1;
+        intensity = 1;
+    }
+
     @Override
     protected void onApply(long glyph, int localIndex, int globalIndex, float delta) {
         // Calculate progress
@@ -68,9 +82,9 @@ public class JumpEffect extends Effect {
         float interpolation;
         float split = 0.2f;
         if (progress < split) {
-            interpolation = Interpolation.pow2Out.apply(0, 1, progress / split);
+            interpolation = (TypingConfig.USE_LOOKUP_TABLES ? LookupInterpolation.pow2Out : Interpolation.pow2Out).apply(0, 1, progress / split);
         } else {
-            interpolation = Interpolation.bounceOut.apply(1, 0, (progress - split) / (1f - split));
+            interpolation = (TypingConfig.USE_LOOKUP_TABLES ? LookupInterpolation.bounceOut : Interpolation.bounceOut).apply(1, 0, (progress - split) / (1f - split));
         }
         float y = label.getLineHeight(globalIndex) * distance * interpolation * DEFAULT_DISTANCE;
 
@@ -17,6 +17,7 @@
 package com.github.tommyettinger.textra.effects;
 
 import com.github.tommyettinger.textra.Effect;
+import com.github.tommyettinger.textra.TypingEffectsSystem;
 import com.github.tommyettinger.textra.TypingLabel;
 import com.github.tommyettinger.textra.utils.ColorUtils;
 
@@ -34,7 +35,11 @@ public class RainbowEffect extends Effect {
 
     public RainbowEffect(TypingLabel label, String[] params) {
         super(label);
+        assignParameters(params);
+    }
 
+    @Override
+    protected void assignParameters(String[] params) {
         // Distance
         if (params.length > 0) {
             this.distance = paramAsFloat(params[0], 1);
@@ -56,14 +61,33 @@ public class RainbowEffect extends Effect {
         }
     }
 
+    @Override
+    public void reset() {
+        super.reset();
+        distance = 1;
+        frequency = 1;
+        saturation = 1;
+        brightness = 0.5f;
+    }
+
     @Override
     protected void onApply(long glyph, int localIndex, int globalIndex, float delta) {
         // Calculate progress
         float distanceMod = (1f / distance) * (1f - DEFAULT_DISTANCE);
         float frequencyMod = (1f / frequency) * DEFAULT_FREQUENCY;
-        float progress = calculateProgress(frequencyMod, distanceMod * localIndex, false);
 
-        label.setInWorkingLayout(globalIndex, (glyph & 0xFFFFFFFFL) | (long) ColorUtils.hsl2rgb(progress, saturation, brightness, 1f) << 32);
+        // Use the color another label already calculated this frame, if any
+        TypingEffectsSystem.Channel channel = channel(frequencyMod, distanceMod, saturation, brightness);
+        int color;
+        if (channel != null && channel.has(localIndex)) {
+            color = channel.getInt(localIndex);
+        } else {
+            float progress = calculateProgressAt(clock(), frequencyMod, distanceMod * localIndex, false);
+            color = ColorUtils.hsl2rgb(progress, saturation, brightness, 1f);
+            if (channel != null) channel.put(localIndex, color);
+        }
+
+        label.setInWorkingLayout(globalIndex, (glyph & 0xFFFFFFFFL) | (long) color << 32);
     }
 
 }
@@ -27,13 +27,23 @@ public class RotateEffect extends Effect {
 
     public RotateEffect(TypingLabel label, String[] params) {
         super(label);
+        assignParameters(params);
+    }
 
+    @Override
+    protected void assignParameters(String[] params) {
         // Size X (and Y)
         if (params.length > 0) {
             this.rotation = paramAsFloat(params[0], 90.0f);
         }
     }
 
+    @Override
+    public void reset() {
+        super.reset();
+        rotation = 90;
+    }
+
     @Override
     protected void onApply(long glyph, int localIndex, int globalIndex, float delta) {
         label.rotations.incr(globalIndex, rotation);
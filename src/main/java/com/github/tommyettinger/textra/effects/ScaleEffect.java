@@ -28,7 +28,11 @@ public class ScaleEffect extends Effect {
 
     public ScaleEffect(TypingLabel label, String[] params) {
         super(label);
+        assignParameters(params);
+    }
 
+    @Override
+    protected void assignParameters(String[] params) {
         // Size X (and Y)
         if (params.length > 0) {
             this.sizeX = paramAsFloat(params[0], 100.0f) * 0.01f;
@@ -40,6 +44,13 @@ public class ScaleEffect extends Effect {
         }
     }
 
+    @Override
+    public void reset() {
+        super.reset();
+        sizeX = 1;
+        sizeY = 1;
+    }
+
     @Override
     protected void onApply(long glyph, int localIndex, int globalIndex, float delta) {
         label.sizing.incr(globalIndex << 1, sizeX - 1f);
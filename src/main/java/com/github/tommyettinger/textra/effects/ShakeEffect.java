@@ -36,7 +36,11 @@ public class ShakeEffect extends Effect {
 
     public ShakeEffect(TypingLabel label, String[] params) {
         super(label);
+        assignParameters(params);
+    }
 
+    @Override
+    protected void assignParameters(String[] params) {
         // Distance
         if (params.length > 0) {
             this.distance = paramAsFloat(params[0], 1);
@@ -53,6 +57,14 @@ public class ShakeEffect extends Effect {
         }
     }
 
+    @Override
+    public void reset() {
+        super.reset();
+        lastOffsets.clear();
+        distance = 1;
+        intensity = 1;
+    }
+
     @Override
     protected void onApply(long glyph, int localIndex, int globalIndex, float delta) {
         // Make sure we can hold enough entries for the current index
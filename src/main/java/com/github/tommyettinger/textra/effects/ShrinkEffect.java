@@ -37,7 +37,11 @@ public class ShrinkEffect extends Effect {
 
     public ShrinkEffect(TypingLabel label, String[] params) {
         super(label);
+        assignParameters(params);
+    }
 
+    @Override
+    protected void assignParameters(String[] params) {
         // Distance
         if (params.length > 0) {
             this.distance = paramAsFloat(params[0], 1.0f);
@@ -54,6 +58,15 @@ public class ShrinkEffect extends Effect {
         }
     }
 
+    @Override
+    public void reset() {
+        super.reset();
+        distance = 1;
+        intensity = 1;
+        elastic = false;
+        timePassedByGlyphIndex.clear();
+    }
+
     @Override
     protected void onApply(long glyph, int localIndex, int globalIndex, float delta) {
         // Calculate real intensity
@@ -19,7 +19,9 @@ package com.github.tommyettinger.textra.effects;
 import com.badlogic.gdx.math.Interpolation;
 import com.badlogic.gdx.utils.IntArray;
 import com.github.tommyettinger.textra.Effect;
+import com.github.tommyettinger.textra.TypingConfig;
 import com.github.tommyettinger.textra.TypingLabel;
+import com.github.tommyettinger.textra.utils.LookupInterpolation;
 
 /**
  * Drips the text in a random pattern.
@@ -36,7 +38,11 @@ public class SickEffect extends Effect {
 
     public SickEffect(TypingLabel label, String[] params) {
         super(label);
+        assignParameters(params);
+    }
 
+    @Override
+    protected void assignParameters(String[] params) {
         // Distance
         if (params.length > 0) {
             this.distance = paramAsFloat(params[0], 1);
@@ -53,6 +59,14 @@ public class SickEffect extends Effect {
         }
     }
 
+    @Override
+    public void reset() {
+        super.reset();
+        distance = 1;
+        intensity = 1;
+        indices.clear();
+    }
+
     @Override
     protected void onApply(long glyph, int localIndex, int globalIndex, float delta) {
         // Calculate progress
@@ -76,9 +90,9 @@ public class SickEffect extends Effect {
         float interpolation;
         float split = 0.5f;
         if (progress < split) {
-            interpolation = Interpolation.pow2Out.apply(0, 1, progress / split);
+            interpolation = (TypingConfig.USE_LOOKUP_TABLES ? LookupInterpolation.pow2Out : Interpolation.pow2Out).apply(0, 1, progress / split);
         } else {
-            interpolation = Interpolation.pow2In.apply(1, 0, (progress - split) / (1f - split));
+            interpolation = (TypingConfig.USE_LOOKUP_TABLES ? LookupInterpolation.pow2In : Interpolation.pow2In).apply(1, 0, (progress - split) / (1f - split));
         }
         float y = label.getLineHeight(globalIndex) * distance * interpolation * DEFAULT_DISTANCE;
 
@@ -36,7 +36,11 @@ public class SpinEffect extends Effect {
 
     public SpinEffect(TypingLabel label, String[] params) {
         super(label);
+        assignParameters(params);
+    }
 
+    @Override
+    protected void assignParameters(String[] params) {
         // Distance
         if (params.length > 0) {
             this.intensity = paramAsFloat(params[0], 1);
@@ -53,6 +57,15 @@ public class SpinEffect extends Effect {
         }
     }
 
+    @Override
+    public void reset() {
+        super.reset();
+        intensity = 1;
+        rotations = 1;
+        elastic = false;
+        timePassedByGlyphIndex.clear();
+    }
+
     @Override
     protected void onApply(long glyph, int localIndex, int globalIndex, float delta) {
         // Calculate real intensity
@@ -20,7 +20,9 @@ import com.badlogic.gdx.math.Interpolation;
 import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.utils.IntFloatMap;
 import com.github.tommyettinger.textra.Effect;
+import com.github.tommyettinger.textra.TypingConfig;
 import com.github.tommyettinger.textra.TypingLabel;
+import com.github.tommyettinger.textra.utils.LookupInterpolation;
 
 /**
  * Stretches the text vertically from the baseline up to its full height. Doesn't repeat itself.
@@ -35,7 +37,11 @@ public class SquashEffect extends Effect {
 
     public SquashEffect(TypingLabel label, String[] params) {
         super(label);
+        assignParameters(params);
+    }
 
+    @Override
+    protected void assignParameters(String[] params) {
         // Distance
         if (params.length > 0) {
             this.intensity = 1.0f / paramAsFloat(params[0], 0.25f);
@@ -47,6 +53,14 @@ public class SquashEffect extends Effect {
         }
     }
 
+    @Override
+    public void reset() {
+        super.reset();
+        intensity = 4f;
+        elastic = false;
+        timePassedByGlyphIndex.clear();
+    }
+
     @Override
     protected void onApply(long glyph, int localIndex, int globalIndex, float delta) {
         // Calculate real intensity
@@ -58,7 +72,7 @@ public class SquashEffect extends Effect {
 
         // Calculate offset
         if (progress < 0.4f) {
-            float interpolatedValue = 1f - Interpolation.sine.apply(progress * 2.5f) * 0.5f;
+            float interpolatedValue = 1f - (TypingConfig.USE_LOOKUP_TABLES ? LookupInterpolation.sine : Interpolation.sine).apply(progress * 2.5f) * 0.5f;
             label.offsets.incr(globalIndex << 1, label.font.mapping.get((char) glyph, label.font.defaultValue).xAdvance * (0.125f - 0.125f * interpolatedValue));
             label.sizing.incr(globalIndex << 1, 1.0f - interpolatedValue);
             label.sizing.incr(globalIndex << 1 | 1, interpolatedValue - 1.0f);
@@ -18,7 +18,10 @@ package com.github.tommyettinger.textra.effects;
 
 import com.badlogic.gdx.math.Interpolation;
 import com.github.tommyettinger.textra.Effect;
+import com.github.tommyettinger.textra.TypingConfig;
+import com.github.tommyettinger.textra.TypingEffectsSystem;
 import com.github.tommyettinger.textra.TypingLabel;
+import com.github.tommyettinger.textra.utils.LookupInterpolation;
 
 /**
  * Moves the text vertically in a sine wave pattern.
@@ -34,7 +37,11 @@ public class WaveEffect extends Effect {
 
     public WaveEffect(TypingLabel label, String[] params) {
         super(label);
+        assignParameters(params);
+    }
 
+    @Override
+    protected void assignParameters(String[] params) {
         // Distance
         if (params.length > 0) {
             this.distance = paramAsFloat(params[0], 1);
@@ -56,16 +63,34 @@ public class WaveEffect extends Effect {
         }
     }
 
+    @Override
+    public void reset() {
+        super.reset();
+        distance = 1;
+        frequency = 1;
+        intensity = 1;
+    }
+
     @Override
     protected void onApply(long glyph, int localIndex, int globalIndex, float delta) {
         // Calculate progress
         float progressModifier = (1f / intensity) * DEFAULT_INTENSITY;
         float normalFrequency = (1f / frequency) * DEFAULT_FREQUENCY;
         float progressOffset = localIndex / normalFrequency;
-        float progress = calculateProgress(progressModifier, progressOffset);
+
+        // Use the value another label already calculated this frame, if any
+        TypingEffectsSystem.Channel channel = channel(progressModifier, normalFrequency, 0f, 0f);
+        float wave;
+        if (channel != null && channel.has(localIndex)) {
+            wave = channel.getFloat(localIndex);
+        } else {
+            float progress = calculateProgressAt(clock(), progressModifier, progressOffset, true);
+            wave = (TypingConfig.USE_LOOKUP_TABLES ? LookupInterpolation.sine : Interpolation.sine).apply(-1, 1, progress);
+            if (channel != null) channel.put(localIndex, wave);
+        }
 
         // Calculate offset
-        float y = label.getLineHeight(globalIndex) * distance * Interpolation.sine.apply(-1, 1, progress) * DEFAULT_DISTANCE;
+        float y = label.getLineHeight(globalIndex) * distance * wave * DEFAULT_DISTANCE;
 
         // Calculate fadeout
         float fadeout = calculateFadeout();
@@ -17,7 +17,9 @@
 package com.github.tommyettinger.textra.effects;
 
 import com.github.tommyettinger.textra.Effect;
+import com.github.tommyettinger.textra.TypingConfig;
 import com.github.tommyettinger.textra.TypingLabel;
+import com.github.tommyettinger.textra.utils.LookupNoise;
 import com.github.tommyettinger.textra.utils.NoiseUtils;
 
 /**
@@ -30,6 +32,13 @@ public class WindEffect extends Effect {
     private static final float DISTANCE_X_RATIO = 1.5f;
     private static final float DISTANCE_Y_RATIO = 1.0f;
     private static final float IDEAL_DELTA = 60f;
+    /**
+     * Created only when {@link TypingConfig#USE_LOOKUP_TABLES} is first used, since the tables take some memory.
+     */
+    private static final class Noise {
+        static final LookupNoise X = new LookupNoise(123);
+        static final LookupNoise Y = new LookupNoise(-4321);
+    }
 
     private float noiseCursorX = 0;
     private float noiseCursorY = 0;
@@ -41,7 +50,11 @@ public class WindEffect extends Effect {
 
     public WindEffect(TypingLabel label, String[] params) {
         super(label);
+        assignParameters(params);
+    }
 
+    @Override
+    protected void assignParameters(String[] params) {
         // Distance X
         if (params.length > 0) {
             this.distanceX = paramAsFloat(params[0], 1);
@@ -68,6 +81,17 @@ public class WindEffect extends Effect {
         }
     }
 
+    @Override
+    public void reset() {
+        super.reset();
+        noiseCursorX = 0;
+        noiseCursorY = 0;
+        distanceX = 1;
+        distanceY = 1;
+        spacing = 1;
+        intensity = 1;
+    }
+
     @Override
     public void update(float delta) {
         super.update(delta);
@@ -88,8 +112,14 @@ public class WindEffect extends Effect {
 
         // Calculate noise
         float indexOffset = localIndex * 0.05f * spacing;
-        float noiseX = NoiseUtils.octaveNoise1D(noiseCursorX + indexOffset, 123);
-        float noiseY = NoiseUtils.octaveNoise1D(noiseCursorY + indexOffset, -4321);
+        float noiseX, noiseY;
+        if (TypingConfig.USE_LOOKUP_TABLES) {
+            noiseX = Noise.X.octaveNoise1D(noiseCursorX + indexOffset);
+            noiseY = Noise.Y.octaveNoise1D(noiseCursorY + indexOffset);
+        } else {
+            noiseX = NoiseUtils.octaveNoise1D(noiseCursorX + indexOffset, 123);
+            noiseY = NoiseUtils.octaveNoise1D(noiseCursorY + indexOffset, -4321);
+        }
 
         // Calculate offset
         float lineHeight = label.getLineHeight(globalIndex);
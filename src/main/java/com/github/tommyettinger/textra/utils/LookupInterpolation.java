@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2021-2022 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.tommyettinger.textra.utils;
+
+import com.badlogic.gdx.math.Interpolation;
+
+/**
+ * An {@link Interpolation} that reads precomputed values of another Interpolation from a table, with linear
+ * interpolation between entries, instead of calling trigonometric or power functions each time. This only uses the
+ * table for alpha values between 0 and 1, inclusive; anything outside that range is passed to the source
+ * Interpolation, so this can be used anywhere the source can. The static instances here use 1024 segments, which keeps
+ * the smooth curves within 0.00001 of their sources; bounceOut has sharp corners at each bounce, and can be off by
+ * about 0.002 right at those corners.
+ */
+public class LookupInterpolation extends Interpolation {
+    public static final LookupInterpolation sine = new LookupInterpolation(Interpolation.sine, 1024);
+    public static final LookupInterpolation pow2In = new LookupInterpolation(Interpolation.pow2In, 1024);
+    public static final LookupInterpolation pow2Out = new LookupInterpolation(Interpolation.pow2Out, 1024);
+    public static final LookupInterpolation pow3Out = new LookupInterpolation(Interpolation.pow3Out, 1024);
+    public static final LookupInterpolation bounceOut = new LookupInterpolation(Interpolation.bounceOut, 1024);
+    public static final LookupInterpolation swing = new LookupInterpolation(Interpolation.swing, 1024);
+
+    public final Interpolation source;
+    private final int size;
+    private final float[] table;
+
+    /**
+     * Creates a LookupInterpolation that stores {@code size + 1} values of source, evenly spaced from 0 to 1.
+     *
+     * @param source the Interpolation to approximate
+     * @param size   how many segments to split the range from 0 to 1 into; more is more accurate
+     */
+    public LookupInterpolation(Interpolation source, int size) {
+        this.source = source;
+        this.size = Math.max(1, size);
+        table = new float[this.size + 1];
+        for (int i = 0; i <= this.size; i++) {
+            table[i] = source.apply(i / (float) this.size);
+        }
+    }
+
+    @Override
+    public float apply(float a) {
+        if (a < 0f || a > 1f) return source.apply(a);
+        final float t = a * size;
+        final int i = Math.min((int) t, size - 1);
+        return table[i] + (table[i + 1] - table[i]) * (t - i);
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2021-2022 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.tommyettinger.textra.utils;
+
+import com.badlogic.gdx.utils.NumberUtils;
+
+/**
+ * A table-driven version of {@link NoiseUtils#noise1D(float, int)} and {@link NoiseUtils#octaveNoise1D(float, int)}
+ * for one seed. The random height at each integer lattice point is precomputed for a power-of-two period, and the
+ * quartic curve between lattice points is read from a shared table with linear interpolation, so getting a noise
+ * value needs no 64-bit multiplication (which is especially slow on GWT) and no per-call hashing.
+ * <br>
+ * For x between 0 (inclusive) and {@link #period} (exclusive), results are within 0.0001 of the NoiseUtils methods
+ * with the same seed; outside that range, the noise repeats with that period instead of continuing to change.
+ */
+public class LookupNoise {
+    /**
+     * How many segments the quartic curve between two lattice points is split into.
+     */
+    public static final int CURVE_SIZE = 256;
+    private static final float[] CURVE = new float[CURVE_SIZE + 1];
+
+    static {
+        for (int i = 0; i <= CURVE_SIZE; i++) {
+            float t = i / (float) CURVE_SIZE;
+            t *= t - 1f;
+            CURVE[i] = t * t;
+        }
+    }
+
+    public final int seed;
+    /**
+     * How many lattice points are precomputed before the noise repeats; always a power of two.
+     */
+    public final int period;
+    private final int mask;
+    private final float[] heights;
+    /**
+     * Uses {@code ~seed}, for the second octave of {@link #octaveNoise1D(float)}.
+     */
+    private final LookupNoise inverse;
+
+    /**
+     * Creates a LookupNoise with the given seed and a period of 4096.
+     *
+     * @param seed any int; the same as the seed given to {@link NoiseUtils#noise1D(float, int)}
+     */
+    public LookupNoise(int seed) {
+        this(seed, 4096);
+    }
+
+    /**
+     * Creates a LookupNoise with the given seed and a period of at least {@code period}, rounded up to a power of two.
+     *
+     * @param seed   any int; the same as the seed given to {@link NoiseUtils#noise1D(float, int)}
+     * @param period how far x can go from 0 before the noise repeats
+     */
+    public LookupNoise(int seed, int period) {
+        this(seed, period, true);
+    }
+
+    private LookupNoise(int seed, int period, boolean withInverse) {
+        this.seed = seed;
+        this.period = Integer.highestOneBit(Math.max(2, period - 1) << 1);
+        this.mask = this.period - 1;
+        heights = new float[this.period];
+        for (int i = 0; i < this.period; i++) {
+            // The same random float between -16 and 16 that NoiseUtils.noise1D() uses for this lattice point.
+            heights[i] = NumberUtils.intBitsToFloat((int) ((seed + i ^ 0x9E3779B97F4A7C15L) * 0xD1B54A32D192ED03L >>> 41) | 0x42000000) - 48f;
+        }
+        inverse = withInverse ? new LookupNoise(~seed, this.period, false) : null;
+    }
+
+    /**
+     * Like {@link NoiseUtils#noise1D(float, int)} with this LookupNoise's seed.
+     *
+     * @param x should go up and/or down steadily and by small amounts (less than 1.0, certainly)
+     * @return a noise value between -1.0 and 1.0
+     */
+    public float noise1D(float x) {
+        x += seed * 0x1p-24f;
+        final int xFloor = x >= 0f ? (int) x : (int) x - 1,
+                rise = 1 - ((x >= 0f ? (int) (x + x) : (int) (x + x) - 1) & 2);
+        final float t = (x - xFloor) * CURVE_SIZE;
+        final int i = Math.min((int) t, CURVE_SIZE - 1);
+        final float curve = CURVE[i] + (CURVE[i + 1] - CURVE[i]) * (t - i);
+        return rise * curve * heights[xFloor & mask];
+    }
+
+    /**
+     * Like {@link NoiseUtils#octaveNoise1D(float, int)} with this LookupNoise's seed; still has a range of -1 to 1.
+     *
+     * @param x should go up and/or down steadily and by small amounts (less than 1.0, certainly)
+     * @return a noise value between -1.0 and 1.0
+     */
+    public float octaveNoise1D(float x) {
+        return noise1D(x) * 0.6666667f + (inverse == null ? noise1D(x * 1.9f) : inverse.noise1D(x * 1.9f)) * 0.33333333f;
+    }
+}
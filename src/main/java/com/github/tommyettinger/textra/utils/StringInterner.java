@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2021-2022 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.tommyettinger.textra.utils;
+
+import java.util.Arrays;
+
+/**
+ * Gets Strings for sections of a CharSequence without allocating a new String when the same sequence of chars has been
+ * requested before. This is used when parsing markup, so that the names inside tags like {@code [+face]} can be
+ * looked up in String-keyed maps without creating a new String for every tag. The Strings this
+ * returns are ordinary Strings, so lookups that use them are exactly as correct as lookups using a new substring.
+ * <br>
+ * This holds at most {@link #limit} Strings; when it would go over that, it forgets all of them and starts over, so it
+ * can't grow without bound if given many different keys. This is not thread-safe, so each StringInterner should
+ * belong to something that is only used from one thread at a time, such as one Font.
+ */
+public class StringInterner {
+    public final int limit;
+    protected long[] hashes;
+    protected String[] keys;
+    protected int size, mask;
+
+    public StringInterner() {
+        this(4096);
+    }
+
+    public StringInterner(int limit) {
+        this.limit = Math.max(1, limit);
+        hashes = new long[64];
+        keys = new String[64];
+        mask = 63;
+    }
+
+    /**
+     * Gets a String with the same contents as {@code text} from {@code start} (inclusive) to {@code end} (exclusive).
+     * If a String with those contents was returned before (and this hasn't been cleared since), this returns the same
+     * String again without allocating. Out-of-bounds start or end values are clamped, like
+     * {@link com.github.tommyettinger.textra.Font#safeSubstring(String, int, int)}.
+     *
+     * @param text  a CharSequence to read from; if null, this returns the empty String
+     * @param start the first index to read from text, inclusive
+     * @param end   the last index to read from text, exclusive
+     * @return a String with the contents of the given section of text, often one that was already returned before
+     */
+    public String intern(CharSequence text, int start, int end) {
+        if (text == null) return "";
+        if (start < 0) start = 0;
+        if (end < 0 || end > text.length()) end = text.length();
+        if (start >= end) return "";
+        final long hash = hash(text, start, end);
+        final int len = end - start;
+        for (int i = (int) (hash >>> 32) & mask; ; i = i + 1 & mask) {
+            final String key = keys[i];
+            if (key == null) break;
+            if (hashes[i] == hash && key.length() == len && matches(key, text, start))
+                return key;
+        }
+        final String key = text.subSequence(start, end).toString();
+        if (size >= limit) clear();
+        if (++size > keys.length >>> 1) resize(keys.length << 1);
+        int i = (int) (hash >>> 32) & mask;
+        while (keys[i] != null) i = i + 1 & mask;
+        hashes[i] = hash;
+        keys[i] = key;
+        return key;
+    }
+
+    /**
+     * Forgets all Strings this has returned.
+     */
+    public void clear() {
+        Arrays.fill(keys, null);
+        size = 0;
+    }
+
+    protected void resize(int newSize) {
+        final long[] oldHashes = hashes;
+        final String[] oldKeys = keys;
+        hashes = new long[newSize];
+        keys = new String[newSize];
+        mask = newSize - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldKeys[j] != null) {
+                int i = (int) (oldHashes[j] >>> 32) & mask;
+                while (keys[i] != null) i = i + 1 & mask;
+                hashes[i] = oldHashes[j];
+                keys[i] = oldKeys[j];
+            }
+        }
+    }
+
+    /**
+     * Hashes a section of a CharSequence to a long, without allocating.
+     *
+     * @param text  a non-null CharSequence to read from
+     * @param start the first index to read from text, inclusive
+     * @param end   the last index to read from text, exclusive
+     * @return a 64-bit hash of the given section
+     */
+    public static long hash(CharSequence text, int start, int end) {
+        long h = 0x9E3779B97F4A7C15L;
+        for (int i = start; i < end; i++) {
+            h = (h + text.charAt(i)) * 0xD1B54A32D192ED03L;
+        }
+        return h ^ h >>> 29;
+    }
+
+    /**
+     * Checks if all of {@code key} is equal to the section of {@code text} starting at {@code start}.
+     *
+     * @param key   a non-null String to compare
+     * @param text  a non-null CharSequence that must have at least {@code start + key.length()} chars
+     * @param start the index in text to start comparing at
+     * @return true if key is equal to that section of text
+     */
+    public static boolean matches(String key, CharSequence text, int start) {
+        for (int i = 0, n = key.length(); i < n; i++) {
+            if (key.charAt(i) != text.charAt(start + i)) return false;
+        }
+        return true;
+    }
+}
@@ -15,6 +15,7 @@
  */
 
 /**
- * Contains miscellaneous support code; currently this covers 1D noise and color editing.
+ * Contains miscellaneous support code; currently this covers 1D noise (computed or from lookup tables),
+ * lookup-table interpolation, color editing, block drawing, and String interning.
  */
 package com.github.tommyettinger.textra.utils;
\ No newline at end of file
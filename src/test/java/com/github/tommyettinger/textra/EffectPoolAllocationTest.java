@@ -0,0 +1,60 @@
+package com.github.tommyettinger.textra;
+
+import com.badlogic.gdx.ApplicationAdapter;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.backends.lwjgl3.Lwjgl3Application;
+import com.badlogic.gdx.backends.lwjgl3.Lwjgl3ApplicationConfiguration;
+import com.github.tommyettinger.textra.effects.WaveEffect;
+
+/**
+ * Checks that restarting a TypingLabel reuses pooled Effects instead of creating new ones. The label is restarted
+ * from a {@link CompiledText} and typed to the end many times; after warming up, this prints how many Effects its
+ * poolable factory still had to create and how many bytes were allocated, which should both be 0, then exits.
+ * <br>
+ * The byte count needs a JVM that supports {@link com.sun.management.ThreadMXBean#getThreadAllocatedBytes(long)},
+ * such as HotSpot or OpenJ9.
+ */
+public class EffectPoolAllocationTest extends ApplicationAdapter {
+    static int created = 0;
+
+    @Override
+    public void create() {
+        TypingConfig.registerEffect("COUNTWAVE", "ENDCOUNTWAVE", (label, params) -> {
+            created++;
+            return new WaveEffect(label, params);
+        }, true);
+        Font font = KnownFonts.getStandardFamily();
+        TypingLabel label = new TypingLabel("", font);
+        CompiledText compiled = CompiledText.compile(label,
+                "{COUNTWAVE}Waving{ENDCOUNTWAVE}, {RAINBOW}colorful{ENDRAINBOW}, and {JOLT}jolting{ENDJOLT} text!");
+        for (int i = 0; i < 100; i++) {
+            run(label, compiled);
+        }
+        final int createdBefore = created;
+        final long before = MarkupAllocationTest.allocatedBytes();
+        for (int i = 0; i < 1000; i++) {
+            run(label, compiled);
+        }
+        final long after = MarkupAllocationTest.allocatedBytes();
+        System.out.println("Effects created by 1000 restarts after warming up: " + (created - createdBefore));
+        System.out.println("Bytes allocated by 1000 restarts after warming up: " + (after - before));
+        TypingConfig.unregisterEffect("COUNTWAVE", "ENDCOUNTWAVE");
+        Gdx.app.exit();
+    }
+
+    static void run(TypingLabel label, CompiledText compiled) {
+        label.restart(compiled);
+        label.skipToTheEnd();
+        for (int i = 0; i < 4; i++) {
+            label.act(0.1f);
+        }
+    }
+
+    public static void main(String[] arg) {
+        Lwjgl3ApplicationConfiguration config = new Lwjgl3ApplicationConfiguration();
+        config.setTitle("Effect Pool Allocation Test");
+        config.setWindowedMode(320, 200);
+        config.disableAudio(true);
+        new Lwjgl3Application(new EffectPoolAllocationTest(), config);
+    }
+}
@@ -0,0 +1,51 @@
+package com.github.tommyettinger.textra;
+
+import com.badlogic.gdx.ApplicationAdapter;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.backends.lwjgl3.Lwjgl3Application;
+import com.badlogic.gdx.backends.lwjgl3.Lwjgl3ApplicationConfiguration;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Checks that parsing markup tags doesn't allocate once the same text has been parsed a few times. This prints how
+ * many bytes were allocated while parsing the text many more times, which should be 0, then exits.
+ * <br>
+ * This needs a JVM that supports {@link com.sun.management.ThreadMXBean#getThreadAllocatedBytes(long)}, such as
+ * HotSpot or OpenJ9.
+ */
+public class MarkupAllocationTest extends ApplicationAdapter {
+    static final String TEXT = "[RED]Red,[] [#00FF00FF]green,[] [|SKY]sky,[] [*]bold[*], [/]oblique[/], "
+            + "[%150]big[%], [@Medieval]medieval[@], [@Mono]mono[@], and [_]under[_][~]struck[~] text!";
+
+    @Override
+    public void create() {
+        Font font = KnownFonts.getStandardFamily();
+        Layout layout = new Layout(font);
+        for (int i = 0; i < 1000; i++) {
+            layout.clear();
+            font.markup(TEXT, layout);
+        }
+        final long before = allocatedBytes();
+        for (int i = 0; i < 10000; i++) {
+            layout.clear();
+            font.markup(TEXT, layout);
+        }
+        final long after = allocatedBytes();
+        System.out.println("Bytes allocated by 10000 markup() calls after warming up: " + (after - before));
+        Gdx.app.exit();
+    }
+
+    static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    public static void main(String[] arg) {
+        Lwjgl3ApplicationConfiguration config = new Lwjgl3ApplicationConfiguration();
+        config.setTitle("Markup Allocation Test");
+        config.setWindowedMode(320, 200);
+        config.disableAudio(true);
+        new Lwjgl3Application(new MarkupAllocationTest(), config);
+    }
+}